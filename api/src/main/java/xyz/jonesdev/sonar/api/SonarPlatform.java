@@ -23,6 +23,8 @@
 
 import java.util.function.Function;
 
+import static xyz.jonesdev.sonar.api.fallback.FallbackPipelines.FALLBACK_PACKET_HANDLER;
+
 @Getter
 @RequiredArgsConstructor
 public enum SonarPlatform {
@@ -31,7 +33,10 @@ public enum SonarPlatform {
   BUNGEE("BungeeCord", 19109, "inbound-boss",
     pipeline -> "packet-encoder"),
   VELOCITY("Velocity", 19107, "handler",
-    pipeline -> "minecraft-encoder");
+    pipeline -> "minecraft-encoder"),
+  // The standalone front proxy doesn't have bStats metrics
+  STANDALONE("Standalone", 0, FALLBACK_PACKET_HANDLER,
+    pipeline -> "packet-encoder");
 
   private final String displayName;
   private final int metricsId;
@@ -150,9 +150,79 @@ public void loadValues() {
     // Database
     database.type = Database.Type.valueOf(generalConfig.getString("database.type").toUpperCase());
     database.maximumAge = clamp(generalConfig.getInt("database.maximum-age"), 1, 365);
+    database.saveBlacklist = generalConfig.getBoolean("database.save-blacklist");
+
+    // Connections
+    connections.fastTeardown = generalConfig.getBoolean("connections.fast-teardown");
+    connections.skipBlacklistedMessage = generalConfig.getBoolean("connections.skip-blacklisted-message");
+    connections.earlyBlacklistCheck = generalConfig.getBoolean("connections.early-blacklist-check");
+    connections.earlyRatelimitCheck = generalConfig.getBoolean("connections.early-ratelimit-check");
+    connections.maxConnectionsPerSecond = clamp(generalConfig.getInt("connections.max-connections-per-second"), 0, 1000000);
+    connections.pauseAccepting = generalConfig.getBoolean("connections.pause-accepting");
+    connections.addressBucket.capacity = clamp(generalConfig.getInt("connections.token-buckets.ip.capacity"), 0, 10000);
+    connections.addressBucket.refillPerSecond = clamp(generalConfig.getInt("connections.token-buckets.ip.refill-per-second"), 1, 10000);
+    connections.subnetBucket.capacity = clamp(generalConfig.getInt("connections.token-buckets.subnet.capacity"), 0, 10000);
+    connections.subnetBucket.refillPerSecond = clamp(generalConfig.getInt("connections.token-buckets.subnet.refill-per-second"), 1, 10000);
+    connections.largeSubnetBucket.capacity = clamp(generalConfig.getInt("connections.token-buckets.large-subnet.capacity"), 0, 10000);
+    connections.largeSubnetBucket.refillPerSecond = clamp(generalConfig.getInt("connections.token-buckets.large-subnet.refill-per-second"), 1, 10000);
+    connections.ipv4PrefixLength = clamp(generalConfig.getInt("connections.address-prefix.ipv4"), 8, 32);
+    connections.ipv6PrefixLength = clamp(generalConfig.getInt("connections.address-prefix.ipv6"), 32, 128);
+    connections.ipv4NetworkPrefixLength = clamp(generalConfig.getInt("connections.network-prefix.ipv4"),
+      8, connections.ipv4PrefixLength);
+    connections.ipv6NetworkPrefixLength = clamp(generalConfig.getInt("connections.network-prefix.ipv6"),
+      16, connections.ipv6PrefixLength);
+    connections.sniffLogins = generalConfig.getBoolean("connections.sniff-logins");
+    connections.stripHandlers = generalConfig.getBoolean("connections.strip-handlers");
+    connections.statusCacheTime = clamp(generalConfig.getInt("connections.status.cache-time"), 0, 60000);
+    connections.pingBucket.capacity = clamp(generalConfig.getInt("connections.status.ping-limit.capacity"), 0, 10000);
+    connections.pingBucket.refillPerSecond = clamp(generalConfig.getInt("connections.status.ping-limit.refill-per-second"), 1, 10000);
+    connections.allowedHostnames.clear();
+    for (final String hostname : generalConfig.getStringList("connections.allowed-hostnames")) {
+      connections.allowedHostnames.add(hostname.toLowerCase(Locale.ROOT));
+    }
+
+    // Load shedding
+    loadShedding.shrinkQueueLag = clamp(generalConfig.getInt("load-shedding.event-loop-lag.shrink-queue"), 0, 60000);
+    loadShedding.skipCaptchaLag = clamp(generalConfig.getInt("load-shedding.event-loop-lag.skip-captcha"), 0, 60000);
+    loadShedding.pauseVerificationLag = clamp(generalConfig.getInt("load-shedding.event-loop-lag.pause-verification"), 0, 60000);
+    loadShedding.rejectLoginsLag = clamp(generalConfig.getInt("load-shedding.event-loop-lag.reject-logins"), 0, 60000);
+    loadShedding.shrinkQueueMemory = clamp(generalConfig.getInt("load-shedding.memory.shrink-queue"), 0, 100);
+    loadShedding.skipCaptchaMemory = clamp(generalConfig.getInt("load-shedding.memory.skip-captcha"), 0, 100);
+    loadShedding.pauseVerificationMemory = clamp(generalConfig.getInt("load-shedding.memory.pause-verification"), 0, 100);
+    loadShedding.rejectLoginsMemory = clamp(generalConfig.getInt("load-shedding.memory.reject-logins"), 0, 100);
+    loadShedding.queueCapacity = clamp(generalConfig.getInt("load-shedding.queue-capacity"), 1, 1000000);
+
+    // Firewall
+    firewall.enabled = generalConfig.getBoolean("firewall.enabled");
+    firewall.updateInterval = clamp(generalConfig.getInt("firewall.update-interval"), 1, 3600);
+    firewall.setName = generalConfig.getString("firewall.set-name");
+    firewall.command = generalConfig.getString("firewall.command");
+
+    // GeoIP
+    geoIP.asnDatabase = generalConfig.getString("geoip.asn-database");
+    geoIP.countryDatabase = generalConfig.getString("geoip.country-database");
+    geoIP.asnPolicies.clear();
+    geoIP.countryPolicies.clear();
+    for (final String entry : generalConfig.getStringList("geoip.policies")) {
+      try {
+        final int separator = entry.indexOf(':');
+        final String key = entry.substring(0, separator).trim().toUpperCase();
+        final GeoIP.Policy policy = GeoIP.Policy.valueOf(entry.substring(separator + 1).trim().toUpperCase());
+        // Networks are written as AS<number>, while countries use their ISO code
+        if (key.startsWith("AS")) {
+          geoIP.asnPolicies.put(Long.parseLong(key.substring(2)), policy);
+        } else {
+          geoIP.countryPolicies.put(key, policy);
+        }
+      } catch (RuntimeException exception) {
+        Sonar.get0().getLogger().warn("Ignoring invalid GeoIP policy: {}", entry);
+      }
+    }
+    geoIP.maxLoginsPerAsn = clamp(generalConfig.getInt("geoip.max-logins-per-asn"), 0, 100000);
 
     // Queue
     queue.maxQueuePolls = clamp(generalConfig.getInt("queue.max-polls"), 1, 1000);
+    queue.loginPacingRate = clamp(generalConfig.getInt("queue.login-pacing.logins-per-second"), 0, 10000);
 
     // Verification
     verification.timing = Verification.Timing.valueOf(generalConfig.getString("verification.timing"));
@@ -205,11 +275,21 @@ public void loadValues() {
     verification.logDuringAttack = generalConfig.getBoolean("verification.log-during-attack");
     verification.debugXYZPositions = generalConfig.getBoolean("verification.debug-xyz-positions");
     verification.readTimeout = clamp(generalConfig.getInt("verification.read-timeout"), 1000, 30000);
+    // Waiting players must be let through before the read timeout disconnects them
+    final long maxPacedLogins = queue.loginPacingRate <= 0 ? 100000L
+      : Math.min(100000L, (long) queue.loginPacingRate * verification.readTimeout / 1000L);
+    queue.maxPacedLogins = clamp(generalConfig.getInt("queue.login-pacing.max-waiting"), 1,
+      (int) Math.max(1L, maxPacedLogins));
     verification.writeTimeout = clamp(generalConfig.getInt("verification.write-timeout"), 1000, 30000);
-    verification.reconnectDelay = clamp(generalConfig.getInt("verification.rejoin-delay"), 0, 100000);
+    verification.threads = clamp(generalConfig.getInt("verification.threads"), 0, 64);
+    loadRejoinLimit(verification.loginLimit, "verification.rejoin-limits.login");
+    loadRejoinLimit(verification.failedLimit, "verification.rejoin-limits.failed");
+    loadRejoinLimit(verification.succeededLimit, "verification.rejoin-limits.succeeded");
     verification.rememberTime = clamp(generalConfig.getInt("verification.remember-time"), 0, 86400000);
     verification.blacklistTime = clamp(generalConfig.getInt("verification.blacklist-time"), 0, 86400000);
     verification.blacklistThreshold = clamp(generalConfig.getInt("verification.blacklist-threshold"), 0, 100);
+    verification.blacklistNetworkThreshold = clamp(generalConfig.getInt("verification.blacklist-network-threshold"), 0, 65536);
+    verification.blacklistSaveInterval = clamp(generalConfig.getInt("verification.blacklist-save-interval"), 0, 86400);
     verification.blacklistedProtocols.clear();
     verification.blacklistedProtocols.addAll(generalConfig.getIntList("verification.blacklisted-protocols"));
 
@@ -261,6 +341,7 @@ public void loadValues() {
       Placeholder.component("prefix", prefix));
 
     tooManyOnlinePerIp = deserializeDisconnectMessage("too-many-online-per-ip");
+    connections.invalidHostname = deserializeDisconnectMessage("invalid-hostname");
     verification.currentlyPreparing = deserializeDisconnectMessage("verification.currently-preparing");
     verification.unsupportedVersion = deserializeDisconnectMessage("verification.unsupported-version");
     verification.tooFastReconnect = deserializeDisconnectMessage("verification.too-fast-reconnect");
@@ -269,12 +350,20 @@ public void loadValues() {
     verification.blacklisted = deserializeDisconnectMessage("verification.blacklisted");
     verification.invalidUsername = deserializeDisconnectMessage("verification.invalid-username");
     verification.protocolBlacklisted = deserializeDisconnectMessage("verification.blacklisted-protocol");
+    verification.networkDenied = deserializeDisconnectMessage("verification.network-denied");
+    verification.tooManyJoining = deserializeDisconnectMessage("verification.too-many-joining");
+    verification.serverBusy = deserializeDisconnectMessage("verification.server-busy");
     verification.verificationSuccess = deserializeDisconnectMessage("verification.success");
     verification.verificationFailed = deserializeDisconnectMessage("verification.failed");
 
     verboseAnimation = Collections.unmodifiableList(messagesConfig.getStringList("verbose.animation"));
   }
 
+  private void loadRejoinLimit(final Verification.@NotNull RejoinLimit rejoinLimit, final String path) {
+    rejoinLimit.capacity = clamp(generalConfig.getInt(path + ".capacity"), 0, 1000);
+    rejoinLimit.refillDelay = clamp(generalConfig.getInt(path + ".refill-delay"), 1, 3600000);
+  }
+
   private @NotNull Component deserializeDisconnectMessage(final String path) {
     return MiniMessage.miniMessage().deserialize(
       String.join("<newline>", messagesConfig.getStringList(path)),
@@ -306,6 +395,14 @@ private static int clamp(final int v, final int max, final int min) {
     return logPlayerAddresses ? inetAddress.getHostAddress() : "<ip address withheld>";
   }
 
+  @Getter
+  private final Connections connections = new Connections();
+  @Getter
+  private final LoadShedding loadShedding = new LoadShedding();
+  @Getter
+  private final Firewall firewall = new Firewall();
+  @Getter
+  private final GeoIP geoIP = new GeoIP();
   @Getter
   private final Queue queue = new Queue();
   @Getter
@@ -338,10 +435,86 @@ private static int clamp(final int v, final int max, final int min) {
   @Getter
   private List<String> verboseAnimation;
 
+  @Getter
+  @NoArgsConstructor(access = AccessLevel.PRIVATE)
+  public static final class Connections {
+    private boolean fastTeardown;
+    private boolean skipBlacklistedMessage;
+    private boolean earlyBlacklistCheck;
+    private boolean earlyRatelimitCheck;
+    private int maxConnectionsPerSecond;
+    private boolean pauseAccepting;
+
+    private final TokenBucket addressBucket = new TokenBucket();
+    private final TokenBucket subnetBucket = new TokenBucket();
+    private final TokenBucket largeSubnetBucket = new TokenBucket();
+    private int ipv4PrefixLength;
+    private int ipv6PrefixLength;
+    private int ipv4NetworkPrefixLength;
+    private int ipv6NetworkPrefixLength;
+    private final Collection<String> allowedHostnames = new HashSet<>(0);
+    private Component invalidHostname;
+    private boolean sniffLogins;
+    private boolean stripHandlers;
+    private int statusCacheTime;
+    private final TokenBucket pingBucket = new TokenBucket();
+
+    @Getter
+    public static final class TokenBucket {
+      private int capacity;
+      private int refillPerSecond;
+    }
+  }
+
+  @Getter
+  @NoArgsConstructor(access = AccessLevel.PRIVATE)
+  public static final class LoadShedding {
+    private int shrinkQueueLag;
+    private int skipCaptchaLag;
+    private int pauseVerificationLag;
+    private int rejectLoginsLag;
+    private int shrinkQueueMemory;
+    private int skipCaptchaMemory;
+    private int pauseVerificationMemory;
+    private int rejectLoginsMemory;
+    private int queueCapacity;
+  }
+
+  @Getter
+  @NoArgsConstructor(access = AccessLevel.PRIVATE)
+  public static final class Firewall {
+    private boolean enabled;
+    private int updateInterval;
+    private String setName;
+    private String command;
+  }
+
+  @Getter
+  @NoArgsConstructor(access = AccessLevel.PRIVATE)
+  public static final class GeoIP {
+    public enum Policy {
+      DENY,
+      CAPTCHA,
+      SKIP
+    }
+
+    private String asnDatabase;
+    private String countryDatabase;
+    private final Map<Long, Policy> asnPolicies = new HashMap<>();
+    private final Map<String, Policy> countryPolicies = new HashMap<>();
+    private int maxLoginsPerAsn;
+
+    public boolean hasPolicy(final @NotNull Policy policy) {
+      return asnPolicies.containsValue(policy) || countryPolicies.containsValue(policy);
+    }
+  }
+
   @Getter
   @NoArgsConstructor(access = AccessLevel.PRIVATE)
   public static final class Queue {
     private int maxQueuePolls;
+    private int loginPacingRate;
+    private int maxPacedLogins;
   }
 
   @Getter
@@ -422,10 +595,15 @@ public boolean isSurvivalOrAdventure() {
 
     private int readTimeout;
     private int writeTimeout;
-    private int reconnectDelay;
+    private int threads;
+    private final RejoinLimit loginLimit = new RejoinLimit();
+    private final RejoinLimit failedLimit = new RejoinLimit();
+    private final RejoinLimit succeededLimit = new RejoinLimit();
     private int rememberTime;
     private int blacklistTime;
     private int blacklistThreshold;
+    private int blacklistNetworkThreshold;
+    private int blacklistSaveInterval;
     private final Collection<Integer> blacklistedProtocols = new HashSet<>(0);
 
     private Component tooFastReconnect;
@@ -436,8 +614,24 @@ public boolean isSurvivalOrAdventure() {
     private Component alreadyQueued;
     private Component blacklisted;
     private Component protocolBlacklisted;
+    private Component networkDenied;
+    private Component tooManyJoining;
+    private Component serverBusy;
     private Component currentlyPreparing;
     private Component unsupportedVersion;
+
+    @Getter
+    public static final class RejoinLimit {
+      private int capacity;
+      private int refillDelay;
+
+      /**
+       * @return Time (in milliseconds) it takes to refill the entire bucket
+       */
+      public long getRefillTime() {
+        return (long) capacity * refillDelay;
+      }
+    }
   }
 
   @Getter
@@ -480,6 +674,7 @@ public enum Type {
 
     private Type type;
     private int maximumAge;
+    private boolean saveBlacklist;
   }
 
   @Getter
@@ -21,6 +21,8 @@
 import com.j256.ormlite.dao.Dao;
 import com.j256.ormlite.dao.DaoManager;
 import com.j256.ormlite.jdbc.JdbcConnectionSource;
+import com.j256.ormlite.misc.TransactionManager;
+import com.j256.ormlite.stmt.DeleteBuilder;
 import com.j256.ormlite.stmt.QueryBuilder;
 import com.j256.ormlite.support.ConnectionSource;
 import com.j256.ormlite.table.TableUtils;
@@ -30,6 +32,7 @@
 import org.jetbrains.annotations.Range;
 import xyz.jonesdev.sonar.api.Sonar;
 import xyz.jonesdev.sonar.api.config.SonarConfiguration;
+import xyz.jonesdev.sonar.api.database.model.BlacklistEntry;
 import xyz.jonesdev.sonar.api.database.model.VerifiedPlayer;
 import xyz.jonesdev.sonar.api.fingerprint.FingerprintingUtil;
 
@@ -38,12 +41,15 @@
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 public final class VerifiedPlayerController {
   @Getter
@@ -51,6 +57,7 @@ public final class VerifiedPlayerController {
   private @Nullable ConnectionSource connectionSource;
   private Dao<VerifiedPlayer, Integer> dao;
   private QueryBuilder<VerifiedPlayer, Integer> queryBuilder;
+  private @Nullable Dao<BlacklistEntry, Integer> blacklistDao;
   @Getter
   private final @NotNull SonarConfiguration.Database.Type cachedDatabaseType;
   private final ExecutorService updateService = Executors.newSingleThreadExecutor();
@@ -108,6 +115,16 @@ public VerifiedPlayerController(final @NotNull LibraryManager libraryManager) {
       dao = DaoManager.createDao(connectionSource, VerifiedPlayer.class);
       queryBuilder = dao.queryBuilder();
 
+      if (database.isSaveBlacklist()) {
+        try {
+          TableUtils.createTableIfNotExists(connectionSource, BlacklistEntry.class);
+          blacklistDao = DaoManager.createDao(connectionSource, BlacklistEntry.class);
+        } catch (SQLException exception) {
+          // Don't let this prevent verified players from being loaded
+          exception.printStackTrace(System.err);
+        }
+      }
+
       // Make sure to run the clean task and the caching task in the same thread
       // https://github.com/jonesdevelopment/sonar/issues/150
       updateService.execute(() -> {
@@ -135,6 +152,12 @@ public void close() {
     if (connectionSource != null) {
       // Shut down the update service before letting it re-use the connection.
       updateService.shutdown();
+      try {
+        // Give the last blacklist snapshot a chance to be saved
+        updateService.awaitTermination(5L, TimeUnit.SECONDS);
+      } catch (InterruptedException exception) {
+        Thread.currentThread().interrupt();
+      }
       try {
         connectionSource.close();
       } catch (Exception exception) {
@@ -245,4 +268,74 @@ public void clearAll() {
       }
     }
   }
+
+  /**
+   * Asynchronously writes the given blacklist entries to the database
+   * and removes all entries that have expired from the database.
+   * If {@code replace} is true, all other entries are removed as well;
+   * otherwise, only older versions of the given entries are replaced.
+   *
+   * @param failure Called if the entries could not be written to the database
+   */
+  public void saveBlacklist(final @NotNull Collection<BlacklistEntry> entries,
+                            final boolean replace,
+                            final @NotNull Runnable failure) {
+    // Don't try to update the table if saving the blacklist is disabled
+    if (blacklistDao == null) {
+      return;
+    }
+
+    updateService.execute(() -> {
+      if (connectionSource != null) {
+        try {
+          TransactionManager.callInTransaction(connectionSource, () -> {
+            if (replace) {
+              blacklistDao.deleteBuilder().delete();
+            } else {
+              deleteExpiredBlacklistEntries();
+              for (final BlacklistEntry entry : entries) {
+                final DeleteBuilder<BlacklistEntry, Integer> deleteBuilder = blacklistDao.deleteBuilder();
+                deleteBuilder.where().eq("type", entry.getType())
+                  .and().eq("high", entry.getHigh())
+                  .and().eq("low", entry.getLow());
+                deleteBuilder.delete();
+              }
+            }
+            blacklistDao.create(entries);
+            return null;
+          });
+        } catch (SQLException exception) {
+          exception.printStackTrace(System.err);
+          failure.run();
+        }
+      }
+    });
+  }
+
+  /**
+   * Asynchronously loads all blacklist entries that haven't expired yet from the database
+   */
+  public void loadBlacklist(final @NotNull Consumer<List<BlacklistEntry>> consumer) {
+    // Don't try to query the table if saving the blacklist is disabled
+    if (blacklistDao == null) {
+      return;
+    }
+
+    updateService.execute(() -> {
+      if (connectionSource != null) {
+        try {
+          deleteExpiredBlacklistEntries();
+          consumer.accept(blacklistDao.queryForAll());
+        } catch (SQLException exception) {
+          exception.printStackTrace(System.err);
+        }
+      }
+    });
+  }
+
+  private void deleteExpiredBlacklistEntries() throws SQLException {
+    final DeleteBuilder<BlacklistEntry, Integer> deleteBuilder = blacklistDao.deleteBuilder();
+    deleteBuilder.where().lt("expiry", new Timestamp(System.currentTimeMillis()));
+    deleteBuilder.delete();
+  }
 }
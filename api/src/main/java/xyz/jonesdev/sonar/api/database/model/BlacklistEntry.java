@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.api.database.model;
+
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.table.DatabaseTable;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.sql.Timestamp;
+
+@Getter
+@ToString
+@DatabaseTable(tableName = "sonar_blacklist")
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public final class BlacklistEntry {
+  // Blacklisted IP address
+  public static final int ADDRESS = 0;
+  // Blacklisted network
+  public static final int NETWORK = 1;
+  // Number of blacklisted IP addresses of a network
+  public static final int NETWORK_COUNT = 2;
+
+  @SuppressWarnings("unused")
+  @DatabaseField(generatedId = true)
+  private int id;
+
+  // Entries are looked up by their type and IP address when they are updated
+  @DatabaseField(
+    columnName = "type",
+    canBeNull = false,
+    indexName = "sonar_blacklist_key"
+  )
+  private int type;
+
+  // IP addresses are stored as IPv4-mapped IPv6 addresses split into two halves
+  @DatabaseField(
+    columnName = "high",
+    canBeNull = false,
+    indexName = "sonar_blacklist_key"
+  )
+  private long high;
+
+  @DatabaseField(
+    columnName = "low",
+    canBeNull = false,
+    indexName = "sonar_blacklist_key"
+  )
+  private long low;
+
+  // Blacklist score, prefix length (in bits of the IPv6 address) or number of IP addresses, depending on the type
+  @DatabaseField(
+    columnName = "value",
+    canBeNull = false
+  )
+  private int value;
+
+  @DatabaseField(
+    columnName = "expiry",
+    canBeNull = false
+  )
+  private Timestamp expiry;
+
+  public BlacklistEntry(final int type,
+                        final long high,
+                        final long low,
+                        final int value,
+                        final long expiry) {
+    this.type = type;
+    this.high = high;
+    this.low = low;
+    this.value = value;
+    this.expiry = new Timestamp(expiry);
+  }
+}
@@ -0,0 +1,360 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.api.fallback;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Binary radix trie of IP address ranges (CIDR blocks) that expire after a given time.
+ * Looking up an IP address walks at most one node per bit of the longest stored prefix,
+ * no matter how many ranges are stored, and does not allocate anything for IPv4 addresses.
+ * Nodes are stored in primitive arrays and looked up without locking whenever possible.
+ */
+public final class AddressRangeTrie {
+  private static final int ROOT = 0;
+  // Child index 0 means that there is no child, since the root can never be a child.
+  // The root itself can't hold a range, since /0 ranges are not allowed.
+  private static final int NONE = 0;
+
+  private final StampedLock lock = new StampedLock();
+  // Two children (0 and 1) per node
+  private int[] children;
+  // Time at which the range ending at this node expires; 0 if no range ends here
+  private long[] expiries;
+  private int nodes, freeList, ranges;
+
+  public AddressRangeTrie() {
+    allocate();
+  }
+
+  private void allocate() {
+    children = new int[2 * 64];
+    expiries = new long[64];
+    // The root always exists
+    nodes = 1;
+    freeList = NONE;
+    ranges = 0;
+  }
+
+  /**
+   * @return true if the given IP address is part of a range that hasn't expired yet
+   */
+  public boolean contains(final @NotNull InetAddress inetAddress) {
+    final byte[] bytes = InetAddressKeys.bytes(inetAddress);
+    final long high = InetAddressKeys.high(bytes);
+    final long low = InetAddressKeys.low(inetAddress, bytes);
+    final long now = System.currentTimeMillis();
+
+    final long stamp = lock.tryOptimisticRead();
+    if (stamp != 0L) {
+      try {
+        final boolean contains = contains(high, low, now);
+        if (lock.validate(stamp)) {
+          return contains;
+        }
+      } catch (ArrayIndexOutOfBoundsException exception) {
+        // The trie has been modified while we were reading it
+      }
+    }
+
+    final long readStamp = lock.readLock();
+    try {
+      return contains(high, low, now);
+    } finally {
+      lock.unlockRead(readStamp);
+    }
+  }
+
+  private boolean contains(final long high, final long low, final long now) {
+    final int[] children = this.children;
+    final long[] expiries = this.expiries;
+    int node = ROOT;
+    for (int depth = 0; depth < 128; depth++) {
+      node = children[2 * node + bit(high, low, depth)];
+      if (node == NONE) {
+        return false;
+      }
+      // Any range that contains the IP address is enough, so we can stop at the shortest one
+      if (expiries[node] > now) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Adds the given range or resets its expiry if it already exists
+   *
+   * @param network      Any IP address of the range
+   * @param prefixLength Number of bits of the network part (e.g. 24 for 1.2.3.0/24)
+   * @param timeout      Number of milliseconds after which the range expires
+   */
+  public void insert(final @NotNull InetAddress network, final int prefixLength, final long timeout) {
+    final byte[] bytes = InetAddressKeys.bytes(network);
+    final long high = InetAddressKeys.high(bytes);
+    final long low = InetAddressKeys.low(network, bytes);
+    final int length = toPrefixLength(network, prefixLength);
+
+    final long stamp = lock.writeLock();
+    try {
+      expiries[insert(high, low, length)] = System.currentTimeMillis() + timeout;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Adds a range that has been passed to {@link #forEach(RangeConsumer)} before.
+   * If the range already exists, the later expiry is kept.
+   *
+   * @param length Number of bits of the network part in the IPv4-mapped IPv6 address
+   * @param expiry Time at which the range expires
+   */
+  public void restore(final long high, final long low, final int length, final long expiry) {
+    if (length < 1 || length > 128) {
+      throw new IllegalArgumentException("Invalid prefix length: " + length);
+    }
+    if (expiry <= System.currentTimeMillis()) {
+      return;
+    }
+
+    final long stamp = lock.writeLock();
+    try {
+      final int node = insert(high, low, length);
+      expiries[node] = Math.max(expiries[node], expiry);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  private int insert(final long high, final long low, final int length) {
+    int node = ROOT;
+    for (int depth = 0; depth < length; depth++) {
+      final int index = 2 * node + bit(high, low, depth);
+      if (children[index] == NONE) {
+        final int child = allocateNode();
+        children[index] = child;
+      }
+      node = children[index];
+    }
+    if (expiries[node] == 0L) {
+      ranges++;
+    }
+    return node;
+  }
+
+  /**
+   * Passes every range that hasn't expired yet to the given consumer.
+   * The trie can't be modified until the consumer has seen all ranges.
+   */
+  public void forEach(final @NotNull RangeConsumer consumer) {
+    final long stamp = lock.readLock();
+    try {
+      forEach(ROOT, 0, 0L, 0L, System.currentTimeMillis(), consumer);
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  private void forEach(final int node, final int depth, final long high, final long low,
+                       final long now, final @NotNull RangeConsumer consumer) {
+    if (expiries[node] > now) {
+      consumer.accept(high, low, depth, expiries[node]);
+    }
+    for (int bit = 0; bit < 2; bit++) {
+      final int child = children[2 * node + bit];
+      if (child == NONE) continue;
+      // Append the bit of the child to the network part of the range
+      forEach(child, depth + 1,
+        depth < 64 ? high | (long) bit << (63 - depth) : high,
+        depth < 64 ? low : low | (long) bit << (127 - depth),
+        now, consumer);
+    }
+  }
+
+  /**
+   * @return true if exactly the given range is stored and hasn't expired yet
+   */
+  public boolean containsRange(final @NotNull InetAddress network, final int prefixLength) {
+    final byte[] bytes = InetAddressKeys.bytes(network);
+    final long high = InetAddressKeys.high(bytes);
+    final long low = InetAddressKeys.low(network, bytes);
+    final int length = toPrefixLength(network, prefixLength);
+
+    final long stamp = lock.readLock();
+    try {
+      final int node = find(high, low, length);
+      return node != NONE && expiries[node] > System.currentTimeMillis();
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * @return true if the given range has been removed
+   */
+  public boolean remove(final @NotNull InetAddress network, final int prefixLength) {
+    final byte[] bytes = InetAddressKeys.bytes(network);
+    final long high = InetAddressKeys.high(bytes);
+    final long low = InetAddressKeys.low(network, bytes);
+    final int length = toPrefixLength(network, prefixLength);
+
+    final long stamp = lock.writeLock();
+    try {
+      final int node = find(high, low, length);
+      if (node == NONE || expiries[node] == 0L) {
+        return false;
+      }
+      expiries[node] = 0L;
+      ranges--;
+      // Get rid of the nodes that aren't needed anymore
+      prune(ROOT, Long.MIN_VALUE);
+      return true;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Removes all ranges that have expired and the nodes that aren't needed anymore
+   */
+  public void cleanUp() {
+    final long stamp = lock.writeLock();
+    try {
+      prune(ROOT, System.currentTimeMillis());
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Removes all ranges and releases the memory used by the trie
+   */
+  public void clear() {
+    final long stamp = lock.writeLock();
+    try {
+      allocate();
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * @return Number of ranges, including expired ranges that haven't been cleaned up yet
+   */
+  public int size() {
+    final long stamp = lock.readLock();
+    try {
+      return ranges;
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  private int find(final long high, final long low, final int length) {
+    int node = ROOT;
+    for (int depth = 0; depth < length; depth++) {
+      node = children[2 * node + bit(high, low, depth)];
+      if (node == NONE) {
+        return NONE;
+      }
+    }
+    return node;
+  }
+
+  /**
+   * @return true if the given node can be removed
+   */
+  private boolean prune(final int node, final long now) {
+    if (expiries[node] != 0L && expiries[node] <= now) {
+      expiries[node] = 0L;
+      ranges--;
+    }
+    boolean empty = expiries[node] == 0L;
+    for (int bit = 0; bit < 2; bit++) {
+      final int child = children[2 * node + bit];
+      if (child == NONE) continue;
+      if (prune(child, now)) {
+        children[2 * node + bit] = NONE;
+        freeNode(child);
+      } else {
+        empty = false;
+      }
+    }
+    return empty && node != ROOT;
+  }
+
+  private int allocateNode() {
+    // Reuse nodes that have been removed before
+    if (freeList != NONE) {
+      final int node = freeList;
+      freeList = children[2 * node];
+      children[2 * node] = NONE;
+      return node;
+    }
+    if (nodes == expiries.length) {
+      // Readers might still be using the old arrays, so we have to copy them
+      final int[] newChildren = new int[children.length << 1];
+      final long[] newExpiries = new long[expiries.length << 1];
+      System.arraycopy(children, 0, newChildren, 0, children.length);
+      System.arraycopy(expiries, 0, newExpiries, 0, expiries.length);
+      children = newChildren;
+      expiries = newExpiries;
+    }
+    return nodes++;
+  }
+
+  private void freeNode(final int node) {
+    expiries[node] = 0L;
+    children[2 * node] = freeList;
+    children[2 * node + 1] = NONE;
+    freeList = node;
+  }
+
+  @FunctionalInterface
+  public interface RangeConsumer {
+    /**
+     * @param high   Upper 64 bits of the (IPv4-mapped) IPv6 network
+     * @param low    Lower 64 bits of the (IPv4-mapped) IPv6 network
+     * @param length Number of bits of the network part, including the 96 bits in front of IPv4 networks
+     * @param expiry Time at which the range expires
+     */
+    void accept(long high, long low, int length, long expiry);
+  }
+
+  private static int toPrefixLength(final @NotNull InetAddress network, final int prefixLength) {
+    if (network instanceof Inet4Address) {
+      if (prefixLength < 1 || prefixLength > 32) {
+        throw new IllegalArgumentException("Invalid IPv4 prefix length: " + prefixLength);
+      }
+      return InetAddressKeys.IPV4_PREFIX_LENGTH + prefixLength;
+    }
+    if (prefixLength < 1 || prefixLength > 128) {
+      throw new IllegalArgumentException("Invalid IPv6 prefix length: " + prefixLength);
+    }
+    return prefixLength;
+  }
+
+  private static int bit(final long high, final long low, final int depth) {
+    return (int) (depth < 64 ? high >>> (63 - depth) : low >>> (127 - depth)) & 1;
+  }
+}
@@ -0,0 +1,469 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.api.fallback;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.net.InetAddress;
+import java.util.function.IntPredicate;
+
+/**
+ * Open-addressing table that maps IP addresses to integers which expire after a given time.
+ * Keys and values are stored in primitive arrays, so an entry only takes about 30 bytes
+ * and looking up an IPv4 address does not allocate anything.
+ * Once the table has reached its maximum capacity, old entries are evicted using a clock hand:
+ * entries that have been accessed since the last pass of the hand get a second chance.
+ * Pinned entries (e.g. blacklisted IP addresses) are not evicted; the table rather
+ * grows past its maximum capacity than forgetting about them before they expire.
+ * This growth is capped at {@link #PINNED_GROWTH} times the maximum capacity, though;
+ * once that is reached, pinned entries are evicted just like any other entry.
+ */
+public final class ExpiringAddressTable {
+  private static final int SEGMENTS = 16;
+  private static final int MAX_PROBES = 16;
+  // How many times the maximum capacity the table can grow to for keeping pinned entries
+  private static final int PINNED_GROWTH = 4;
+
+  private static final int GET = 0, PUT = 1, ADD = 2, PUT_IF_ABSENT = 3, REMOVE = 4, RESTORE = 5;
+
+  private final Segment[] segments = new Segment[SEGMENTS];
+  private final boolean aggregate;
+  private final IntPredicate pinned;
+
+  /**
+   * @param initialCapacity Number of slots the table starts with
+   * @param maximumCapacity Number of slots after which the table stops growing and starts evicting entries
+   * @param aggregate       Whether IP addresses should be aggregated to the configured address prefix
+   */
+  public ExpiringAddressTable(final int initialCapacity, final int maximumCapacity, final boolean aggregate) {
+    this(initialCapacity, maximumCapacity, aggregate, value -> false);
+  }
+
+  /**
+   * @param initialCapacity Number of slots the table starts with
+   * @param maximumCapacity Number of slots after which the table stops growing and starts evicting entries
+   * @param aggregate       Whether IP addresses should be aggregated to the configured address prefix
+   * @param pinned          Tests if an entry with the given value must not be evicted before it expires
+   */
+  public ExpiringAddressTable(final int initialCapacity, final int maximumCapacity, final boolean aggregate,
+                              final @NotNull IntPredicate pinned) {
+    this.aggregate = aggregate;
+    this.pinned = pinned;
+    final int initialSlots = toPowerOfTwo(initialCapacity / SEGMENTS);
+    final int maximumSlots = Math.max(initialSlots, toPowerOfTwo(maximumCapacity / SEGMENTS));
+    for (int i = 0; i < SEGMENTS; i++) {
+      segments[i] = new Segment(initialSlots, maximumSlots);
+    }
+  }
+
+  /**
+   * @return Value of the given IP address, or 0 if there is no such entry or it has expired
+   */
+  public int get(final @NotNull InetAddress inetAddress) {
+    return apply(inetAddress, GET, 0, 0L);
+  }
+
+  /**
+   * @param high Upper half of a key that isn't an IP address (e.g. a hash)
+   * @param low  Lower half of the key
+   * @return Value of the given key, or 0 if there is no such entry or it has expired
+   */
+  public int get(final long high, final long low) {
+    return apply(high, low, GET, 0, 0L);
+  }
+
+  /**
+   * Sets the value of the given key that isn't an IP address (see {@link #get(long, long)})
+   *
+   * @param timeout Number of milliseconds after which the entry expires
+   */
+  public void put(final long high, final long low, final int value, final long timeout) {
+    apply(high, low, PUT, value, timeout);
+  }
+
+  /**
+   * Sets the value of the given IP address
+   *
+   * @param timeout Number of milliseconds after which the entry expires
+   */
+  public void put(final @NotNull InetAddress inetAddress, final int value, final long timeout) {
+    apply(inetAddress, PUT, value, timeout);
+  }
+
+  /**
+   * Adds the given amount to the value of the given IP address and resets its expiry
+   *
+   * @param timeout Number of milliseconds after which the entry expires
+   * @return New value of the given IP address
+   */
+  public int add(final @NotNull InetAddress inetAddress, final int amount, final long timeout) {
+    return apply(inetAddress, ADD, amount, timeout);
+  }
+
+  /**
+   * Sets the value of the given IP address, but only if there is no entry that hasn't expired yet
+   *
+   * @param timeout Number of milliseconds after which the entry expires
+   * @return false if there already was an entry for the given IP address
+   */
+  public boolean putIfAbsent(final @NotNull InetAddress inetAddress, final int value, final long timeout) {
+    return apply(inetAddress, PUT_IF_ABSENT, value, timeout) != 0;
+  }
+
+  /**
+   * @return Previous value of the given IP address, or 0 if there was no such entry
+   */
+  public int remove(final @NotNull InetAddress inetAddress) {
+    return apply(inetAddress, REMOVE, 0, 0L);
+  }
+
+  /**
+   * Removes all entries and releases the memory used by the table
+   */
+  public void clear() {
+    for (final Segment segment : segments) {
+      segment.clear();
+    }
+  }
+
+  /**
+   * Removes all entries that have expired
+   */
+  public void cleanUp() {
+    final long now = System.currentTimeMillis();
+    for (final Segment segment : segments) {
+      segment.cleanUp(now);
+    }
+  }
+
+  /**
+   * Passes every entry that hasn't expired yet to the given consumer.
+   * Each segment is copied before its entries are passed on, so the consumer can take
+   * as long as it needs (e.g. for writing to a file) without blocking the table.
+   */
+  public void forEach(final @NotNull EntryConsumer consumer) {
+    final long now = System.currentTimeMillis();
+    for (final Segment segment : segments) {
+      final long[] highs, lows, expiries;
+      final int[] values;
+      synchronized (segment) {
+        highs = segment.highs.clone();
+        lows = segment.lows.clone();
+        expiries = segment.expiries.clone();
+        values = segment.values.clone();
+      }
+      for (int slot = 0; slot < highs.length; slot++) {
+        if ((highs[slot] == 0L && lows[slot] == 0L) || expiries[slot] <= now) continue;
+        consumer.accept(highs[slot], lows[slot], values[slot], expiries[slot]);
+      }
+    }
+  }
+
+  /**
+   * Adds an entry that has been passed to {@link #forEach(EntryConsumer)} before.
+   * If there already is an entry with the same key, the higher value and the later expiry are kept.
+   *
+   * @param expiry Time at which the entry expires
+   */
+  public void restore(final long high, final long low, final int value, final long expiry) {
+    if (expiry > System.currentTimeMillis()) {
+      apply(high, low, RESTORE, value, expiry);
+    }
+  }
+
+  /**
+   * @return Number of entries, including expired entries that haven't been cleaned up yet
+   */
+  public int size() {
+    int size = 0;
+    for (final Segment segment : segments) {
+      size += segment.size();
+    }
+    return size;
+  }
+
+  private int apply(final @NotNull InetAddress inetAddress, final int operation, final int value, final long timeout) {
+    final byte[] bytes = InetAddressKeys.bytes(inetAddress);
+    final long high = InetAddressKeys.high(bytes);
+    final long low = InetAddressKeys.low(inetAddress, bytes);
+    if (aggregate) {
+      return apply(InetAddressKeys.aggregateHigh(high, bytes), InetAddressKeys.aggregateLow(low, bytes),
+        operation, value, timeout);
+    }
+    return apply(high, low, operation, value, timeout);
+  }
+
+  private int apply(final long high, final long low, final int operation, final int value, final long timeout) {
+    // 0 is used for marking empty slots
+    if (high == 0L && low == 0L) {
+      return 0;
+    }
+    final long hash = hash(high, low);
+    return segments[(int) (hash >>> 60) & (SEGMENTS - 1)].apply(high, low, hash, operation, value, timeout);
+  }
+
+  private static long hash(final long high, final long low) {
+    return InetAddressKeys.mix(InetAddressKeys.mix(high) ^ low);
+  }
+
+  private static int toPowerOfTwo(final int value) {
+    return Integer.highestOneBit(Math.max(value, MAX_PROBES) - 1) << 1;
+  }
+
+  @FunctionalInterface
+  public interface EntryConsumer {
+    /**
+     * @param high   Upper 64 bits of the (IPv4-mapped) IPv6 address
+     * @param low    Lower 64 bits of the (IPv4-mapped) IPv6 address
+     * @param value  Value of the entry
+     * @param expiry Time at which the entry expires
+     */
+    void accept(long high, long low, int value, long expiry);
+  }
+
+  private final class Segment {
+    private final int initialSlots, maximumSlots, maximumPinnedSlots;
+    // An empty slot is marked by both halves of the key being 0 (::), which is never a valid peer address
+    private long[] highs, lows, expiries;
+    private int[] values;
+    private boolean[] referenced;
+    private int mask, count, hand;
+
+    Segment(final int initialSlots, final int maximumSlots) {
+      this.initialSlots = initialSlots;
+      this.maximumSlots = maximumSlots;
+      this.maximumPinnedSlots = maximumSlots * PINNED_GROWTH;
+      allocate(initialSlots);
+    }
+
+    private void allocate(final int slots) {
+      highs = new long[slots];
+      lows = new long[slots];
+      expiries = new long[slots];
+      values = new int[slots];
+      referenced = new boolean[slots];
+      mask = slots - 1;
+      count = 0;
+      hand = 0;
+    }
+
+    synchronized int apply(final long high, final long low, final long hash,
+                           final int operation, final int value, final long timeout) {
+      final long now = System.currentTimeMillis();
+      int slot = find(high, low, (int) hash);
+      // Expired entries are treated as if they didn't exist
+      if (slot != -1 && expiries[slot] <= now) {
+        empty(slot);
+        slot = -1;
+      }
+
+      switch (operation) {
+        case GET: {
+          if (slot == -1) return 0;
+          referenced[slot] = true;
+          return values[slot];
+        }
+        case REMOVE: {
+          if (slot == -1) return 0;
+          final int previous = values[slot];
+          empty(slot);
+          return previous;
+        }
+        case PUT_IF_ABSENT: {
+          if (slot != -1) return 0;
+          store(insert(high, low, (int) hash, now), value, now + timeout);
+          return 1;
+        }
+        case RESTORE: {
+          // The timeout is the absolute expiry of the entry here
+          if (slot == -1) {
+            store(insert(high, low, (int) hash, now), value, timeout);
+            return value;
+          }
+          store(slot, Math.max(values[slot], value), Math.max(expiries[slot], timeout));
+          return values[slot];
+        }
+        case ADD: {
+          final int newValue = slot == -1 ? value : values[slot] + value;
+          store(slot == -1 ? insert(high, low, (int) hash, now) : slot, newValue, now + timeout);
+          return newValue;
+        }
+        default: {
+          store(slot == -1 ? insert(high, low, (int) hash, now) : slot, value, now + timeout);
+          return value;
+        }
+      }
+    }
+
+    private int find(final long high, final long low, final int hash) {
+      // Entries can be removed from the middle of a probe sequence,
+      // so we always have to look at every slot the key could be stored in
+      for (int probe = 0; probe < MAX_PROBES; probe++) {
+        final int slot = (hash + probe) & mask;
+        if (highs[slot] == high && lows[slot] == low) {
+          return slot;
+        }
+      }
+      return -1;
+    }
+
+    private int insert(final long high, final long low, final int hash, final long now) {
+      // Keep the load factor below 75%, so probe sequences stay short
+      if (count >= (mask + 1) - ((mask + 1) >>> 2)) {
+        // Only grow past the maximum capacity if every entry is pinned
+        if (mask + 1 < maximumSlots || !evict(now)) {
+          resize(now);
+        }
+      }
+
+      while (true) {
+        int victim = -1;
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+          final int slot = (hash + probe) & mask;
+          if (isEmpty(slot) || expiries[slot] <= now) {
+            return claim(slot, high, low);
+          }
+          // If all slots are in use, replace the entry that would expire first
+          if (!isPinned(slot) && (victim == -1 || expiries[slot] < expiries[victim])) {
+            victim = slot;
+          }
+        }
+        // Don't replace any entries while the table can still grow
+        if (victim != -1 && mask + 1 >= maximumSlots) {
+          return claim(victim, high, low);
+        }
+        resize(now);
+      }
+    }
+
+    private int claim(final int slot, final long high, final long low) {
+      if (!isEmpty(slot)) {
+        empty(slot);
+      }
+      highs[slot] = high;
+      lows[slot] = low;
+      count++;
+      return slot;
+    }
+
+    private void store(final int slot, final int value, final long expiry) {
+      values[slot] = value;
+      expiries[slot] = expiry;
+      referenced[slot] = true;
+    }
+
+    /**
+     * @return false if there is no entry that can be evicted
+     */
+    private boolean evict(final long now) {
+      // Give every entry a second chance before evicting it
+      for (int step = 0; step < 2 * (mask + 1); step++) {
+        final int slot = hand;
+        hand = (hand + 1) & mask;
+        if (isEmpty(slot)) continue;
+        if (expiries[slot] <= now) {
+          empty(slot);
+          return true;
+        }
+        if (isPinned(slot)) continue;
+        if (!referenced[slot]) {
+          empty(slot);
+          return true;
+        }
+        referenced[slot] = false;
+      }
+      return false;
+    }
+
+    private void resize(final long now) {
+      final long[] oldHighs = highs, oldLows = lows, oldExpiries = expiries;
+      final int[] oldValues = values;
+      final boolean[] oldReferenced = referenced;
+      // Dropping an entry could unblacklist an IP address, so keep growing until every entry fits
+      int slots = oldHighs.length << 1;
+      while (!rehash(slots, oldHighs, oldLows, oldExpiries, oldValues, oldReferenced, now)) {
+        slots <<= 1;
+      }
+    }
+
+    /**
+     * @return false if an entry couldn't be moved into the new arrays
+     */
+    private boolean rehash(final int slots, final long @NotNull [] oldHighs, final long @NotNull [] oldLows,
+                           final long @NotNull [] oldExpiries, final int @NotNull [] oldValues,
+                           final boolean @NotNull [] oldReferenced, final long now) {
+      allocate(slots);
+      for (int i = 0; i < oldHighs.length; i++) {
+        // Don't bother moving expired entries
+        if ((oldHighs[i] == 0L && oldLows[i] == 0L) || oldExpiries[i] <= now) continue;
+        final int hash = (int) hash(oldHighs[i], oldLows[i]);
+        int slot = -1;
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+          if (isEmpty((hash + probe) & mask)) {
+            slot = (hash + probe) & mask;
+            break;
+          }
+        }
+        if (slot == -1) {
+          return false;
+        }
+        highs[slot] = oldHighs[i];
+        lows[slot] = oldLows[i];
+        expiries[slot] = oldExpiries[i];
+        values[slot] = oldValues[i];
+        referenced[slot] = oldReferenced[i];
+        count++;
+      }
+      return true;
+    }
+
+    private boolean isPinned(final int slot) {
+      // Don't let pinned entries take up an unbounded amount of memory
+      return mask + 1 < maximumPinnedSlots && pinned.test(values[slot]);
+    }
+
+    private boolean isEmpty(final int slot) {
+      return highs[slot] == 0L && lows[slot] == 0L;
+    }
+
+    private void empty(final int slot) {
+      highs[slot] = 0L;
+      lows[slot] = 0L;
+      expiries[slot] = 0L;
+      values[slot] = 0;
+      referenced[slot] = false;
+      count--;
+    }
+
+    synchronized void clear() {
+      allocate(initialSlots);
+    }
+
+    synchronized void cleanUp(final long now) {
+      for (int slot = 0; slot <= mask; slot++) {
+        if (!isEmpty(slot) && expiries[slot] <= now) {
+          empty(slot);
+        }
+      }
+    }
+
+    synchronized int size() {
+      return count;
+    }
+  }
+}
@@ -17,42 +17,185 @@
 
 package xyz.jonesdev.sonar.api.fallback;
 
-import com.github.benmanes.caffeine.cache.Cache;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.jetbrains.annotations.NotNull;
 import xyz.jonesdev.sonar.api.Sonar;
 import xyz.jonesdev.sonar.api.config.SonarConfiguration;
 import xyz.jonesdev.sonar.api.fallback.captcha.CaptchaGenerator;
 import xyz.jonesdev.sonar.api.fallback.ratelimit.Ratelimiter;
 
 import java.net.InetAddress;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Locale;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 @Getter
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public final class Fallback {
   public static final Fallback INSTANCE = new Fallback();
+  // Time for which players that have passed the verification are trusted
+  private static final long TRUSTED_TIME = TimeUnit.DAYS.toMillis(1L);
 
-  private final ConcurrentMap<InetAddress, Integer> online = new ConcurrentHashMap<>(128);
-  private final ConcurrentMap<InetAddress, Boolean> connected = new ConcurrentHashMap<>(256);
-  private final FallbackLoginQueue queue = new FallbackLoginQueue();
-  @Setter
-  private Cache<String, Integer> blacklist;
-  @Setter
-  private long blacklistTime;
+  private final FallbackAddressTable addressTable = new FallbackAddressTable();
+  private final FallbackLoginQueue queue = new FallbackLoginQueue(addressTable);
+  // Number of failed verifications per IP address
+  private final ExpiringAddressTable blacklist = new ExpiringAddressTable(1 << 14, 1 << 20, true,
+    value -> {
+      // Never evict IP addresses that are still blacklisted
+      final int limit = Sonar.get0().getConfig().getVerification().getBlacklistThreshold();
+      return limit > 0 && value >= limit;
+    });
+  // Entire networks that have been blacklisted
+  private final AddressRangeTrie blacklistedNetworks = new AddressRangeTrie();
+  // Number of blacklisted IP addresses per network
+  private final ExpiringAddressTable blacklistedPerNetwork = new ExpiringAddressTable(1 << 10, 1 << 16, false);
+  // IP addresses that have already been counted towards the blacklist of their network
+  private final ExpiringAddressTable countedAddresses = new ExpiringAddressTable(1 << 12, 1 << 18, true);
+  // Players that have passed the verification, keyed by a hash of their username and their flow
+  // (see FallbackLoginQueue#flowOf), so the username only counts when joining from the same network again
+  private final ExpiringAddressTable trustedPlayers = new ExpiringAddressTable(1 << 10, 1 << 16, false);
   @Setter
   private CaptchaGenerator captchaGenerator;
   @Setter
   private Ratelimiter<InetAddress> ratelimiter;
+  @Setter
+  private volatile LoadSheddingLevel eventLoopLagLevel = LoadSheddingLevel.NONE;
+  @Setter
+  private volatile LoadSheddingLevel memoryPressureLevel = LoadSheddingLevel.NONE;
+
+  /**
+   * @return Number of players logged into the server per IP address
+   * @deprecated Use {@link FallbackAddressTable#keyOf(InetAddress)} with {@link #getAddressTable()};
+   * the returned view is read-only and can't be iterated
+   */
+  @Deprecated
+  public @NotNull ConcurrentMap<InetAddress, Integer> getOnline() {
+    return new FallbackAddressTableView<>(addressTable, key -> {
+      final int online = addressTable.getOnline(key);
+      return online > 0 ? online : null;
+    }, addressTable::getOnlineCount);
+  }
+
+  /**
+   * @return IP addresses that are currently being verified
+   * @deprecated Use {@link FallbackAddressTable#isVerifying(long)} with {@link #getAddressTable()};
+   * the returned view is read-only and can't be iterated
+   */
+  @Deprecated
+  public @NotNull ConcurrentMap<InetAddress, Boolean> getConnected() {
+    return new FallbackAddressTableView<>(addressTable,
+      key -> addressTable.isVerifying(key) ? Boolean.TRUE : null, addressTable::getVerifyingCount);
+  }
+
+  /**
+   * @return Time (in milliseconds) after which failed verifications are forgotten
+   * @deprecated Use {@link SonarConfiguration.Verification#getBlacklistTime()}
+   */
+  @Deprecated
+  public long getBlacklistTime() {
+    return Sonar.get0().getConfig().getVerification().getBlacklistTime();
+  }
+
+  public boolean isBlacklisted(final @NotNull InetAddress inetAddress) {
+    // The user is allowed to disable the blacklist entirely by setting the threshold to 0
+    final int limit = Sonar.get0().getConfig().getVerification().getBlacklistThreshold();
+    return limit > 0 && (blacklist.get(inetAddress) >= limit || blacklistedNetworks.contains(inetAddress));
+  }
+
+  /**
+   * Blacklists the entire network of the given IP address once
+   * enough different IP addresses of the same network have been blacklisted.
+   * Every IP address is only counted once per blacklist time, so a single IP address
+   * that keeps getting blacklisted again can't blacklist its entire network.
+   *
+   * @param inetAddress IP address that has just been blacklisted
+   */
+  public void countBlacklistedAddress(final @NotNull InetAddress inetAddress) {
+    final int threshold = Sonar.get0().getConfig().getVerification().getBlacklistNetworkThreshold();
+    if (threshold <= 0) return;
+
+    final long blacklistTime = Sonar.get0().getConfig().getVerification().getBlacklistTime();
+    if (!countedAddresses.putIfAbsent(inetAddress, 1, blacklistTime)) return;
+
+    final int prefixLength = InetAddressKeys.networkPrefixLength(inetAddress);
+    final InetAddress network = InetAddressKeys.toNetwork(inetAddress, prefixLength);
+    if (blacklistedPerNetwork.add(network, 1, blacklistTime) == threshold) {
+      blacklistedNetworks.insert(network, prefixLength, blacklistTime);
+      Sonar.get0().getLogger().info("Blacklisted the network {}/{} since {} of its IP addresses have been blacklisted",
+        network.getHostAddress(), prefixLength, threshold);
+    }
+  }
+
+  /**
+   * Remembers that the given player has passed the verification, so they are polled sooner
+   * when joining from a different IP address of the same network
+   *
+   * @param flow Flow of the player (see {@link FallbackLoginQueue#flowOf(InetAddress, long)})
+   */
+  public void trust(final @NotNull String username, final long flow) {
+    trustedPlayers.put(usernameKey(username), flow, 1, TRUSTED_TIME);
+  }
+
+  /**
+   * @param inetAddress IP address of the player
+   * @param flow        Flow of the player (see {@link FallbackLoginQueue#flowOf(InetAddress, long)})
+   * @param username    Username of the player
+   * @return Reputation that decides how quickly the player is polled from the queue
+   */
+  public @NotNull FallbackLoginQueue.Reputation getReputation(final @NotNull InetAddress inetAddress,
+                                                              final long flow,
+                                                              final @NotNull String username) {
+    // Players who have failed the verification before are polled last
+    if (blacklist.get(inetAddress) > 0) {
+      return FallbackLoginQueue.Reputation.SUSPICIOUS;
+    }
+    final InetAddress network = InetAddressKeys.toNetwork(inetAddress, InetAddressKeys.networkPrefixLength(inetAddress));
+    if (blacklistedPerNetwork.get(network) > 0) {
+      return FallbackLoginQueue.Reputation.SUSPICIOUS;
+    }
+    // Players who have been verified before are probably just joining from a new IP address
+    return trustedPlayers.get(usernameKey(username), flow) > 0
+      ? FallbackLoginQueue.Reputation.TRUSTED : FallbackLoginQueue.Reputation.CLEAN;
+  }
+
+  private static long usernameKey(final @NotNull String username) {
+    // Usernames are case-insensitive
+    final String lowercase = username.toLowerCase(Locale.ROOT);
+    long hash = lowercase.length();
+    for (int i = 0; i < lowercase.length(); i++) {
+      hash = InetAddressKeys.mix(hash ^ lowercase.charAt(i));
+    }
+    return hash;
+  }
+
+  /**
+   * Removes all blacklist entries and trusted players that have expired
+   */
+  public void cleanUpBlacklist() {
+    blacklist.cleanUp();
+    blacklistedNetworks.cleanUp();
+    blacklistedPerNetwork.cleanUp();
+    countedAddresses.cleanUp();
+    trustedPlayers.cleanUp();
+  }
+
+  public @NotNull LoadSheddingLevel getLoadSheddingLevel() {
+    final LoadSheddingLevel eventLoopLagLevel = this.eventLoopLagLevel;
+    final LoadSheddingLevel memoryPressureLevel = this.memoryPressureLevel;
+    return eventLoopLagLevel.isAtLeast(memoryPressureLevel) ? eventLoopLagLevel : memoryPressureLevel;
+  }
 
   public boolean shouldVerifyNewPlayers() {
     return shouldPerform(Sonar.get0().getConfig().getVerification().getTiming());
   }
 
   public boolean shouldPerformCaptcha() {
+    if (getLoadSheddingLevel().isAtLeast(LoadSheddingLevel.SKIP_CAPTCHA)) {
+      return false;
+    }
     return shouldPerform(Sonar.get0().getConfig().getVerification().getMap().getTiming());
   }
 
@@ -0,0 +1,364 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.api.fallback;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps track of the state of every connected IP address that lives as long as its connections:
+ * the number of players online, whether a player is being verified and the queued verification.
+ * This state is updated together in a single lookup.
+ * Entries are keyed by primitive longs of IP addresses aggregated to the configured address prefix
+ * (see {@link #keyOf}) and stored in open-addressing arrays, so updating an entry doesn't allocate anything.
+ * Entries that no longer hold any state are removed automatically.
+ * State that outlives the connections, like the blacklist and the rate limiter,
+ * is kept in {@link ExpiringAddressTable}s and has to be looked up separately.
+ */
+public final class FallbackAddressTable {
+  private static final int SEGMENTS = 16;
+  private static final int INITIAL_SLOTS = 32;
+
+  private final Segment[] segments = new Segment[SEGMENTS];
+  private final AtomicInteger verifyingCount = new AtomicInteger();
+  private final AtomicInteger queuedCount = new AtomicInteger();
+
+  FallbackAddressTable() {
+    for (int i = 0; i < SEGMENTS; i++) {
+      segments[i] = new Segment();
+    }
+  }
+
+  /**
+   * The configured address prefix can change while a connection holds state in this table,
+   * so the key has to be computed once and kept for as long as the connection is open.
+   *
+   * @return Key of the given IP address using the current address prefix
+   */
+  public long keyOf(final @NotNull InetAddress inetAddress) {
+    final long key = InetAddressKeys.aggregatedKey(inetAddress);
+    // 0 is used for marking empty slots
+    return key == 0L ? Long.MIN_VALUE : key;
+  }
+
+  /**
+   * @param key Key of the IP address (see {@link #keyOf(InetAddress)})
+   * @return true if a player with the given key is currently being verified
+   */
+  public boolean isVerifying(final long key) {
+    final long hash = InetAddressKeys.mix(key);
+    return segmentOf(hash).isVerifying(key, (int) hash);
+  }
+
+  /**
+   * Marks a player with the given key as being verified
+   *
+   * @param key Key of the IP address (see {@link #keyOf(InetAddress)})
+   */
+  public void markVerifying(final long key) {
+    final long hash = InetAddressKeys.mix(key);
+    segmentOf(hash).markVerifying(key, (int) hash);
+  }
+
+  /**
+   * Counts a player with the given key that is logging into the server
+   *
+   * @param key Key of the IP address (see {@link #keyOf(InetAddress)})
+   * @return Number of players with the same key that were logged in before
+   */
+  public int incrementOnline(final long key) {
+    final long hash = InetAddressKeys.mix(key);
+    return segmentOf(hash).incrementOnline(key, (int) hash);
+  }
+
+  /**
+   * Releases whatever a player with the given key was holding after they have disconnected:
+   * their place in the queue, the verification or their login into the server
+   *
+   * @param key Key of the IP address (see {@link #keyOf(InetAddress)})
+   */
+  public void release(final long key) {
+    final long hash = InetAddressKeys.mix(key);
+    segmentOf(hash).release(key, (int) hash);
+  }
+
+  /**
+   * Queues the given action for the given key, unless there already is a queued action
+   *
+   * @param key Key of the IP address (see {@link #keyOf(InetAddress)})
+   * @return false if an action was already queued, in which case it is removed as well
+   */
+  boolean offerQueued(final long key, final @NotNull Runnable action) {
+    final long hash = InetAddressKeys.mix(key);
+    return segmentOf(hash).offerQueued(key, (int) hash, action);
+  }
+
+  /**
+   * Removes the given action from the queue of the given key
+   *
+   * @param key Key of the IP address (see {@link #keyOf(InetAddress)})
+   * @return false if the given action is no longer queued for the given key
+   */
+  boolean removeQueued(final long key, final @NotNull Runnable action) {
+    final long hash = InetAddressKeys.mix(key);
+    return segmentOf(hash).removeQueued(key, (int) hash, action);
+  }
+
+  /**
+   * @param key Key of the IP address (see {@link #keyOf(InetAddress)})
+   * @return Number of players with the given key that are logged into the server
+   */
+  int getOnline(final long key) {
+    final long hash = InetAddressKeys.mix(key);
+    return segmentOf(hash).getOnline(key, (int) hash);
+  }
+
+  /**
+   * @param key Key of the IP address (see {@link #keyOf(InetAddress)})
+   * @return Action that starts the verification of the queued player, or null if nobody is queued
+   */
+  @Nullable Runnable getQueuedAction(final long key) {
+    final long hash = InetAddressKeys.mix(key);
+    return segmentOf(hash).getQueuedAction(key, (int) hash);
+  }
+
+  /**
+   * @return Number of IP addresses that have players logged into the server
+   */
+  int getOnlineCount() {
+    int count = 0;
+    for (final Segment segment : segments) {
+      count += segment.getOnlineCount();
+    }
+    return count;
+  }
+
+  /**
+   * @return Number of IP addresses that are currently being verified
+   */
+  public int getVerifyingCount() {
+    return verifyingCount.get();
+  }
+
+  /**
+   * @return Number of IP addresses that are currently queued for verification
+   */
+  public int getQueuedCount() {
+    return queuedCount.get();
+  }
+
+  private @NotNull Segment segmentOf(final long hash) {
+    return segments[(int) (hash >>> 60) & (SEGMENTS - 1)];
+  }
+
+  private final class Segment {
+    // An empty slot is marked by a key of 0, which keyOf never returns
+    private long[] keys;
+    // Number of players with the IP address that are logged into the server
+    private int[] online;
+    // Whether a player with the IP address is currently being verified
+    private boolean[] verifying;
+    // Starts the verification of the queued player; null if nobody is queued
+    private Runnable[] queuedActions;
+    private int mask, count;
+
+    Segment() {
+      allocate(INITIAL_SLOTS);
+    }
+
+    private void allocate(final int slots) {
+      keys = new long[slots];
+      online = new int[slots];
+      verifying = new boolean[slots];
+      queuedActions = new Runnable[slots];
+      mask = slots - 1;
+      count = 0;
+    }
+
+    synchronized boolean isVerifying(final long key, final int hash) {
+      final int slot = find(key, hash);
+      return slot != -1 && verifying[slot];
+    }
+
+    synchronized int getOnline(final long key, final int hash) {
+      final int slot = find(key, hash);
+      return slot == -1 ? 0 : online[slot];
+    }
+
+    synchronized @Nullable Runnable getQueuedAction(final long key, final int hash) {
+      final int slot = find(key, hash);
+      return slot == -1 ? null : queuedActions[slot];
+    }
+
+    synchronized int getOnlineCount() {
+      int count = 0;
+      for (final int value : online) {
+        if (value > 0) count++;
+      }
+      return count;
+    }
+
+    synchronized void markVerifying(final long key, final int hash) {
+      final int slot = findOrInsert(key, hash);
+      if (!verifying[slot]) {
+        verifying[slot] = true;
+        verifyingCount.incrementAndGet();
+      }
+    }
+
+    synchronized int incrementOnline(final long key, final int hash) {
+      final int slot = findOrInsert(key, hash);
+      return online[slot]++;
+    }
+
+    synchronized void release(final long key, final int hash) {
+      final int slot = find(key, hash);
+      if (slot == -1) {
+        return;
+      }
+      if (queuedActions[slot] != null) {
+        // Remove the IP address from the queue
+        queuedActions[slot] = null;
+        queuedCount.decrementAndGet();
+      } else if (verifying[slot]) {
+        // Remove the IP address from the verifying players, if needed
+        verifying[slot] = false;
+        verifyingCount.decrementAndGet();
+      } else if (online[slot] > 0) {
+        /*
+         * Decrement the number of accounts with the same IP, but only if the player
+         * is logging into the backend server. We don't need to decrement the count
+         * if the player was just verified since we've never actually incremented it
+         * in the first place ¯\_(ツ)_/¯
+         */
+        online[slot]--;
+      }
+      removeIfEmpty(slot);
+    }
+
+    synchronized boolean offerQueued(final long key, final int hash, final @NotNull Runnable action) {
+      final int slot = findOrInsert(key, hash);
+      // Check if the player is already queued since we don't want bots to flood the queue
+      if (queuedActions[slot] != null) {
+        // Remove other instances of this IP address from the queue
+        queuedActions[slot] = null;
+        queuedCount.decrementAndGet();
+        removeIfEmpty(slot);
+        return false;
+      }
+      queuedActions[slot] = action;
+      queuedCount.incrementAndGet();
+      return true;
+    }
+
+    synchronized boolean removeQueued(final long key, final int hash, final @NotNull Runnable action) {
+      final int slot = find(key, hash);
+      // The player might have left the queue already or might have been queued again
+      if (slot == -1 || queuedActions[slot] != action) {
+        return false;
+      }
+      queuedActions[slot] = null;
+      queuedCount.decrementAndGet();
+      removeIfEmpty(slot);
+      return true;
+    }
+
+    private int find(final long key, final int hash) {
+      for (int slot = hash & mask; keys[slot] != 0L; slot = (slot + 1) & mask) {
+        if (keys[slot] == key) {
+          return slot;
+        }
+      }
+      return -1;
+    }
+
+    private int findOrInsert(final long key, final int hash) {
+      final int existing = find(key, hash);
+      if (existing != -1) {
+        return existing;
+      }
+      // Keep the load factor below 75%, so probe sequences stay short
+      if (count + 1 > (mask + 1) - ((mask + 1) >>> 2)) {
+        resize((mask + 1) << 1);
+      }
+      int slot = hash & mask;
+      while (keys[slot] != 0L) {
+        slot = (slot + 1) & mask;
+      }
+      keys[slot] = key;
+      count++;
+      return slot;
+    }
+
+    private void removeIfEmpty(final int slot) {
+      // Don't keep entries around that don't hold any state
+      if (online[slot] > 0 || verifying[slot] || queuedActions[slot] != null) {
+        return;
+      }
+      // Move the following entries back into the gap, so probe sequences never have holes
+      int gap = slot;
+      for (int next = (gap + 1) & mask; keys[next] != 0L; next = (next + 1) & mask) {
+        final int home = (int) InetAddressKeys.mix(keys[next]) & mask;
+        // The entry can only be moved if the gap lies between its home slot and its current slot
+        if (((next - home) & mask) >= ((next - gap) & mask)) {
+          move(next, gap);
+          gap = next;
+        }
+      }
+      keys[gap] = 0L;
+      online[gap] = 0;
+      verifying[gap] = false;
+      queuedActions[gap] = null;
+      count--;
+      // Give the memory back once a flood of connections is over
+      if (mask + 1 > INITIAL_SLOTS && count < (mask + 1) >>> 3) {
+        resize((mask + 1) >>> 1);
+      }
+    }
+
+    private void move(final int from, final int to) {
+      keys[to] = keys[from];
+      online[to] = online[from];
+      verifying[to] = verifying[from];
+      queuedActions[to] = queuedActions[from];
+    }
+
+    private void resize(final int slots) {
+      final long[] oldKeys = keys;
+      final int[] oldOnline = online;
+      final boolean[] oldVerifying = verifying;
+      final Runnable[] oldQueuedActions = queuedActions;
+      allocate(slots);
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldKeys[i] == 0L) continue;
+        int slot = (int) InetAddressKeys.mix(oldKeys[i]) & mask;
+        while (keys[slot] != 0L) {
+          slot = (slot + 1) & mask;
+        }
+        keys[slot] = oldKeys[i];
+        online[slot] = oldOnline[i];
+        verifying[slot] = oldVerifying[i];
+        queuedActions[slot] = oldQueuedActions[i];
+        count++;
+      }
+    }
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.api.fallback;
+
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.InetAddress;
+import java.util.AbstractMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.IntSupplier;
+import java.util.function.LongFunction;
+
+/**
+ * Read-only map view of the {@link FallbackAddressTable} for the deprecated map getters of the API.
+ * IP addresses are only stored as hashed keys, so single IP addresses can be looked up,
+ * but the entries of the view can't be iterated.
+ */
+@RequiredArgsConstructor
+final class FallbackAddressTableView<V> extends AbstractMap<InetAddress, V> implements ConcurrentMap<InetAddress, V> {
+  private final FallbackAddressTable addressTable;
+  private final LongFunction<@Nullable V> getter;
+  private final IntSupplier size;
+
+  @Override
+  public @Nullable V get(final Object key) {
+    return key instanceof InetAddress ? getter.apply(addressTable.keyOf((InetAddress) key)) : null;
+  }
+
+  @Override
+  public boolean containsKey(final Object key) {
+    return get(key) != null;
+  }
+
+  @Override
+  public int size() {
+    return size.getAsInt();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  @Override
+  public @NotNull Set<Entry<InetAddress, V>> entrySet() {
+    throw new UnsupportedOperationException("The IP addresses of the address table can't be iterated");
+  }
+
+  @Override
+  public V putIfAbsent(final @NotNull InetAddress key, final V value) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public boolean remove(final @NotNull Object key, final Object value) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public boolean replace(final @NotNull InetAddress key, final @NotNull V oldValue, final @NotNull V newValue) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public V replace(final @NotNull InetAddress key, final @NotNull V value) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{size=" + size() + "}";
+  }
+}
@@ -20,34 +20,303 @@
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import xyz.jonesdev.sonar.api.Sonar;
+import xyz.jonesdev.sonar.api.statistics.SonarStatistics;
 
+import java.net.Inet4Address;
 import java.net.InetAddress;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
 
-@Getter
+/**
+ * Queue of players that are waiting to be verified.
+ * Any number of threads can offer players, but only a single thread may drain the queue.
+ * <br>
+ * Players are grouped into flows (usually one per network or ASN), which take turns
+ * using deficit round-robin scheduling, so a single network can't take over the queue.
+ * Every player costs a share of their flow's turn that depends on their {@link Reputation}.
+ * Players of the same flow are polled in the order they were queued.
+ * <br>
+ * Players are drained in small batches, and the rate at which they are drained
+ * adapts to how fast the server manages to verify players and how far behind the event loops are.
+ */
 @RequiredArgsConstructor(access = AccessLevel.PROTECTED)
 public final class FallbackLoginQueue {
-  // Fixed thread pool executor for all new verifications
-  private static final int THREAD_POOL_SIZE = Math.min(0x7fff, Runtime.getRuntime().availableProcessors() * 2);
-  private static final ExecutorService QUEUE_EXECUTOR = Executors.newFixedThreadPool(THREAD_POOL_SIZE);
-
-  private final ConcurrentMap<InetAddress, Runnable> players = new ConcurrentHashMap<>(512);
-
-  public void poll() {
-    final int maxQueuePolls = Math.min(players.size(), Sonar.get0().getConfig().getQueue().getMaxQueuePolls());
-    // No need to initiate an executor service task if nobody is currently queued
-    if (maxQueuePolls <= 0) return;
-    // We need to be cautious here since we don't want any concurrency issues
-    QUEUE_EXECUTOR.execute(() -> {
-      final var iterator = players.entrySet().iterator();
-      for (int index = 0; index < maxQueuePolls && iterator.hasNext(); index++) {
-        iterator.next().getValue().run();
-        iterator.remove();
+  // Interval at which the queue should be drained
+  public static final long DRAIN_INTERVAL_MILLIS = 10L;
+  // Share of every turn of a flow; a flow can poll this many suspicious players per turn
+  private static final int QUANTUM = Reputation.SUSPICIOUS.cost;
+  // Prefix lengths of the networks that form a flow if the ASN of a player is unknown
+  private static final int IPV4_FLOW_PREFIX_LENGTH = 24;
+  private static final int IPV6_FLOW_PREFIX_LENGTH = 32;
+
+  private final FallbackAddressTable addressTable;
+  // The queued nodes are also stored in the address table, so players who leave the queue
+  // or get queued a second time can be found without searching the queue.
+  // Nodes that are no longer queued for their IP address in the address table are skipped when polling.
+  private final AtomicReference<Node> tail = new AtomicReference<>(new Node(0L, 0L, null, null, null));
+  // Only accessed by the thread draining the queue
+  private Node head = tail.get();
+  private final Map<Long, Flow> flows = new HashMap<>();
+  private final Deque<Flow> activeFlows = new ArrayDeque<>();
+  private double credit;
+  // Only accessed by the thread adapting the drain rate
+  private int lastFinishedVerifications;
+  // Number of players that are polled per second; starts at the configured maximum
+  private volatile double drainRate = Double.MAX_VALUE;
+
+  /**
+   * Players from the same ASN share a single flow. If the ASN is unknown, players are grouped by their network;
+   * IPv6 networks are grouped by /32, since every customer of a provider can easily get their own /48,
+   * so a single attacker could otherwise open thousands of flows.
+   *
+   * @param asn AS number of the IP address, or -1 if it is unknown
+   * @return Key of the flow the given IP address belongs to
+   */
+  public static long flowOf(final @NotNull InetAddress inetAddress, final long asn) {
+    if (asn >= 0L) {
+      return Long.MIN_VALUE | asn;
+    }
+    return InetAddressKeys.prefixKey(inetAddress,
+      inetAddress instanceof Inet4Address ? IPV4_FLOW_PREFIX_LENGTH : IPV6_FLOW_PREFIX_LENGTH);
+  }
+
+  /**
+   * Queues the player for verification
+   *
+   * @param addressKey Key of the IP address of the player (see {@link FallbackAddressTable#keyOf(InetAddress)})
+   * @param flow       Key of the flow the player belongs to (see {@link #flowOf(InetAddress, long)})
+   * @param reputation Reputation of the player (see {@link Fallback#getReputation(InetAddress, long, String)})
+   * @param executor   Executor that should run the action, usually the event loop of the player's channel
+   * @return false if a player with the same IP address was already queued, in which case both are removed
+   */
+  public boolean offer(final long addressKey,
+                       final long flow,
+                       final @NotNull Reputation reputation,
+                       final @NotNull Executor executor,
+                       final @NotNull Runnable action) {
+    final Node node = new Node(addressKey, flow, reputation, executor, action);
+    // Check if the player is already queued since we don't want bots to flood the queue
+    final boolean queued = addressTable.offerQueued(addressKey, node);
+    if (queued) {
+      // Swapping the tail never fails, so producers never have to retry
+      final Node previous = tail.getAndSet(node);
+      previous.next = node;
+    }
+    return queued;
+  }
+
+  /**
+   * @return Number of players that are currently queued
+   */
+  public int getSize() {
+    return addressTable.getQueuedCount();
+  }
+
+  /**
+   * @return Queued players per IP address
+   * @deprecated Use {@link #getSize()}; the returned view is read-only and can't be iterated
+   */
+  @Deprecated
+  public @NotNull ConcurrentMap<InetAddress, Runnable> getPlayers() {
+    return new FallbackAddressTableView<>(addressTable, addressTable::getQueuedAction, addressTable::getQueuedCount);
+  }
+
+  /**
+   * Polls as many players as the current drain rate allows;
+   * this must only be called by a single thread every {@link #DRAIN_INTERVAL_MILLIS} milliseconds
+   */
+  public void drain() {
+    // Sort all newly queued players into their flows first
+    Node offered;
+    while ((offered = poll()) != null) {
+      Flow flow = flows.get(offered.flow);
+      if (flow == null) {
+        flow = new Flow(offered.flow);
+        flows.put(offered.flow, flow);
+        activeFlows.addLast(flow);
+      }
+      flow.add(offered);
+    }
+
+    final int maxQueuePolls = getMaxQueuePolls();
+    // Don't start any new verifications if the server can't keep up
+    if (maxQueuePolls <= 0) {
+      credit = 0;
+      return;
+    }
+
+    final double pollsPerDrain = Math.min(drainRate, maxQueuePolls) * DRAIN_INTERVAL_MILLIS / 1000D;
+    // Don't save up polls while nobody is queued, but always allow at least one poll
+    credit = Math.min(credit + pollsPerDrain, Math.max(1, pollsPerDrain));
+
+    Flow flow;
+    while (credit >= 1 && (flow = activeFlows.peekFirst()) != null) {
+      final Node node = flow.head;
+      // The flow has used up its turn, so it has to wait until all other flows have had theirs
+      if (flow.deficit < node.reputation.cost) {
+        flow.deficit += QUANTUM;
+        activeFlows.addLast(activeFlows.pollFirst());
+        continue;
+      }
+
+      flow.remove();
+      if (flow.head == null) {
+        // Forget about flows that don't have any queued players left
+        activeFlows.pollFirst();
+        flows.remove(flow.key);
+      }
+
+      // The player might have left the queue already or might have been queued again
+      if (addressTable.removeQueued(node.addressKey, node)) {
+        flow.deficit -= node.reputation.cost;
+        node.run();
+        credit--;
+      }
+    }
+  }
+
+  private @Nullable Node poll() {
+    final Node next = head.next;
+    // A producer might not have linked its node yet; it will be polled during the next drain
+    if (next == null) {
+      return null;
+    }
+    // The polled node becomes the new (empty) head, so we don't need to allocate a new one
+    head = next;
+    return next;
+  }
+
+  /**
+   * Adjusts the drain rate using the number of verifications that have finished since the last call;
+   * this should be called once per second
+   *
+   * @param eventLoopDelay Highest measured delay of the event loops in milliseconds
+   */
+  public void adapt(final long eventLoopDelay) {
+    final SonarStatistics statistics = Sonar.get0().getStatistics();
+    final int finishedVerifications = statistics.getTotalSuccessfulVerifications()
+      + statistics.getTotalFailedVerifications();
+    final int finishedThisSecond = Math.max(finishedVerifications - lastFinishedVerifications, 0);
+    lastFinishedVerifications = finishedVerifications;
+
+    final int maxQueuePolls = Sonar.get0().getConfig().getQueue().getMaxQueuePolls();
+    final int shrinkQueueLag = Sonar.get0().getConfig().getLoadShedding().getShrinkQueueLag();
+    final double step = Math.max(1, maxQueuePolls / 10D);
+    double rate = Math.min(drainRate, maxQueuePolls);
+
+    if (shrinkQueueLag > 0 && eventLoopDelay * 2 >= shrinkQueueLag) {
+      // The event loops are starting to fall behind, so back off quickly
+      rate /= 2;
+    } else if (addressTable.getVerifyingCount() > maxQueuePolls) {
+      // Many players are being verified at once, so don't start verifications
+      // much faster than the server manages to finish them
+      rate = Math.min(rate + step, Math.max(step, finishedThisSecond));
+    } else {
+      rate += step;
+    }
+    drainRate = Math.max(1, Math.min(rate, maxQueuePolls));
+  }
+
+  /**
+   * @return true if no more players should be queued, since the queue has been shrunk
+   */
+  public boolean isFull() {
+    return Sonar.get0().getFallback().getLoadSheddingLevel().isAtLeast(LoadSheddingLevel.SHRINK_QUEUE)
+      && getSize() >= Sonar.get0().getConfig().getLoadShedding().getQueueCapacity();
+  }
+
+  private static int getMaxQueuePolls() {
+    final LoadSheddingLevel loadSheddingLevel = Sonar.get0().getFallback().getLoadSheddingLevel();
+    // Don't start any new verifications if the server can't keep up
+    if (loadSheddingLevel.isAtLeast(LoadSheddingLevel.PAUSE_VERIFICATION)) {
+      return 0;
+    }
+    final int maxQueuePolls = Sonar.get0().getConfig().getQueue().getMaxQueuePolls();
+    if (loadSheddingLevel.isAtLeast(LoadSheddingLevel.SHRINK_QUEUE)) {
+      return Math.max(1, maxQueuePolls / 4);
+    }
+    return maxQueuePolls;
+  }
+
+  @Getter
+  @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+  public enum Reputation {
+    // Players who have been verified before, but are joining from a new IP address
+    TRUSTED(1),
+    // Players whose IP address and network haven't failed the verification recently
+    CLEAN(2),
+    // Players whose IP address or network has failed the verification recently
+    SUSPICIOUS(8);
+
+    // Share of a flow's turn that is used up by polling a player
+    private final int cost;
+  }
+
+  private static final class Flow {
+    private final long key;
+    // Queued players of this flow, linked using Node#nextInFlow
+    private Node head, tail;
+    // New flows can start polling players straight away
+    private int deficit = QUANTUM;
+
+    private Flow(final long key) {
+      this.key = key;
+    }
+
+    private void add(final @NotNull Node node) {
+      if (tail == null) {
+        head = node;
+      } else {
+        tail.nextInFlow = node;
+      }
+      tail = node;
+    }
+
+    private void remove() {
+      final Node node = head;
+      head = node.nextInFlow;
+      node.nextInFlow = null;
+      if (head == null) {
+        tail = null;
+      }
+    }
+  }
+
+  private static final class Node implements Runnable {
+    private final long addressKey;
+    private final long flow;
+    private final Reputation reputation;
+    private final Executor executor;
+    private final Runnable action;
+    private volatile Node next;
+    // Only accessed by the thread draining the queue
+    private Node nextInFlow;
+
+    private Node(final long addressKey, final long flow, final Reputation reputation,
+                 final Executor executor, final Runnable action) {
+      this.addressKey = addressKey;
+      this.flow = flow;
+      this.reputation = reputation;
+      this.executor = executor;
+      this.action = action;
+    }
+
+    @Override
+    public void run() {
+      try {
+        executor.execute(action);
+      } catch (RejectedExecutionException exception) {
+        // The event loop of the player has been shut down in the meantime
       }
-    });
+    }
   }
 }
@@ -28,4 +28,7 @@ public interface FallbackPipelines {
   String FALLBACK_PACKET_DECODER = "sonar-packet-decoder";
   String FALLBACK_TAIL_EXCEPTIONS = "sonar-exception-tail";
   String FALLBACK_BANDWIDTH = "sonar-bandwidth-counter";
+  String FALLBACK_FLUSH_CONSOLIDATION = "sonar-flush-consolidation";
+  String FALLBACK_HANDSHAKE_SNIFFER = "sonar-handshake-sniffer";
+  String FALLBACK_STATUS_CAPTURE = "sonar-status-capture";
 }
@@ -18,6 +18,7 @@
 package xyz.jonesdev.sonar.api.fallback;
 
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
 import io.netty.util.ReferenceCountUtil;
 import net.kyori.adventure.text.Component;
 import org.jetbrains.annotations.NotNull;
@@ -26,6 +27,8 @@
 
 import java.net.InetAddress;
 
+import static xyz.jonesdev.sonar.api.fallback.FallbackPipelines.FALLBACK_FLUSH_CONSOLIDATION;
+
 public interface FallbackUser {
   @NotNull Channel channel();
 
@@ -66,6 +69,28 @@ default void write(final @NotNull Object msg) {
     }
   }
 
+  /**
+   * Sends a packet/message to the player without waiting
+   * for other pending messages to be consolidated into one flush.
+   * This should only be used if the timing of the message matters.
+   *
+   * @param msg Message to send to the player
+   */
+  default void writeImmediately(final @NotNull Object msg) {
+    if (channel().isActive()) {
+      channel().write(msg, channel().voidPromise());
+      // Flush from the consolidation handler's context to skip the consolidation
+      final ChannelHandlerContext ctx = channel().pipeline().context(FALLBACK_FLUSH_CONSOLIDATION);
+      if (ctx != null) {
+        ctx.flush();
+      } else {
+        channel().flush();
+      }
+    } else {
+      ReferenceCountUtil.release(msg);
+    }
+  }
+
   /**
    * Queues a buffered message that will be
    * sent once all messages are flushed.
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.api.fallback;
+
+import lombok.experimental.UtilityClass;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import xyz.jonesdev.sonar.api.Sonar;
+import xyz.jonesdev.sonar.api.config.SonarConfiguration;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Turns IP addresses into two longs, so they can be stored in primitive arrays.
+ * IPv4 addresses are converted to IPv4-mapped IPv6 addresses (::ffff:a.b.c.d).
+ * IP addresses can also be aggregated to the configured address prefix,
+ * so all IP addresses of a single user (e.g. an IPv6 /64 network) end up with the same key.
+ */
+@UtilityClass
+public class InetAddressKeys {
+  final int IPV4_PREFIX_LENGTH = 96;
+  private final long IPV4_MAPPED = 0xFFFFL << 32;
+  // Random seed, so attackers can't pick addresses that end up with the same key as others
+  private final long SEED = ThreadLocalRandom.current().nextLong();
+
+  /**
+   * @return 64-bit key of the given IP address after aggregating it to the configured address prefix
+   */
+  public long aggregatedKey(final @NotNull InetAddress inetAddress) {
+    final byte[] bytes = bytes(inetAddress);
+    final long high = aggregateHigh(high(bytes), bytes);
+    final long low = aggregateLow(low(inetAddress, bytes), bytes);
+    // IPv4 addresses don't use the upper half, so their keys are unique
+    return high == 0L ? low : mix(high) ^ low;
+  }
+
+  /**
+   * @return 64-bit key of the given IP address without aggregating it
+   */
+  public long key(final @NotNull InetAddress inetAddress) {
+    final byte[] bytes = bytes(inetAddress);
+    final long high = high(bytes);
+    final long low = low(inetAddress, bytes);
+    return high == 0L ? low : mix(high) ^ low;
+  }
+
+  /**
+   * @return Configured prefix length of the network the given IP address is part of
+   */
+  public int networkPrefixLength(final @NotNull InetAddress inetAddress) {
+    final SonarConfiguration.Connections connections = Sonar.get0().getConfig().getConnections();
+    return inetAddress instanceof Inet4Address
+      ? connections.getIpv4NetworkPrefixLength()
+      : connections.getIpv6NetworkPrefixLength();
+  }
+
+  /**
+   * @return 64-bit key of the network the given IP address is part of
+   * @see #networkPrefixLength(InetAddress)
+   */
+  public long networkKey(final @NotNull InetAddress inetAddress) {
+    return prefixKey(inetAddress, networkPrefixLength(inetAddress));
+  }
+
+  /**
+   * @param prefixLength Prefix length of the network (e.g. 24 for an IPv4 /24 network)
+   * @return 64-bit key of the network with the given prefix length the given IP address is part of
+   */
+  public long prefixKey(final @NotNull InetAddress inetAddress, final int prefixLength) {
+    final byte[] bytes = bytes(inetAddress);
+    final int length = (bytes == null ? IPV4_PREFIX_LENGTH : 0) + prefixLength;
+    final long high = length >= 64 ? high(bytes) : high(bytes) & -1L << (64 - length);
+    final long low = length <= 64 ? 0L : low(inetAddress, bytes) & -1L << (128 - length);
+    return high == 0L ? low : mix(high) ^ low;
+  }
+
+  /**
+   * @return Network the given IP address is part of in CIDR notation (e.g. 1.2.3.0/24)
+   * @see #networkPrefixLength(InetAddress)
+   */
+  public @NotNull String formatNetwork(final @NotNull InetAddress inetAddress) {
+    final int prefixLength = networkPrefixLength(inetAddress);
+    return toNetwork(inetAddress, prefixLength).getHostAddress() + "/" + prefixLength;
+  }
+
+  /**
+   * Scrambles the given value using a random seed, so attackers can't pick values
+   * that all end up in the same slots of a hash table or sketch
+   *
+   * @return 64-bit hash of the given value
+   */
+  public long mix(final long value) {
+    // https://github.com/aappleby/smhasher/wiki/MurmurHash3
+    long hash = value ^ SEED;
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+
+  /**
+   * @return Raw bytes of the given IPv6 address, or null for IPv4 addresses, which don't need them
+   */
+  byte @Nullable [] bytes(final @NotNull InetAddress inetAddress) {
+    return inetAddress instanceof Inet4Address ? null : inetAddress.getAddress();
+  }
+
+  long high(final byte @Nullable [] bytes) {
+    return bytes == null ? 0L : readLong(bytes, 0);
+  }
+
+  long low(final @NotNull InetAddress inetAddress, final byte @Nullable [] bytes) {
+    // The hash code of an IPv4 address is the address itself
+    return bytes == null ? IPV4_MAPPED | inetAddress.hashCode() & 0xFFFFFFFFL : readLong(bytes, 8);
+  }
+
+  long aggregateHigh(final long high, final byte @Nullable [] bytes) {
+    if (bytes == null) return high;
+    final int prefixLength = Sonar.get0().getConfig().getConnections().getIpv6PrefixLength();
+    return prefixLength >= 64 ? high : high & -1L << (64 - prefixLength);
+  }
+
+  long aggregateLow(final long low, final byte @Nullable [] bytes) {
+    final SonarConfiguration.Connections connections = Sonar.get0().getConfig().getConnections();
+    if (bytes == null) {
+      // The upper 32 bits (::ffff) are always kept, since the mask only clears lower bits
+      return low & -1L << (32 - connections.getIpv4PrefixLength());
+    }
+    final int prefixLength = connections.getIpv6PrefixLength();
+    return prefixLength <= 64 ? 0L : low & -1L << (128 - prefixLength);
+  }
+
+  /**
+   * @return First IP address of the network the given IP address is part of
+   */
+  @NotNull InetAddress toNetwork(final @NotNull InetAddress inetAddress, final int prefixLength) {
+    final byte[] address = inetAddress.getAddress();
+    for (int i = 0; i < address.length; i++) {
+      final int bits = Math.min(8, Math.max(0, prefixLength - i * 8));
+      address[i] &= (byte) (0xFF << (8 - bits));
+    }
+    try {
+      return InetAddress.getByAddress(address);
+    } catch (UnknownHostException exception) {
+      throw new IllegalStateException(exception);
+    }
+  }
+
+  private long readLong(final byte @NotNull [] bytes, final int offset) {
+    long value = 0L;
+    for (int i = 0; i < 8; i++) {
+      value = value << 8 | bytes[offset + i] & 0xFF;
+    }
+    return value;
+  }
+}
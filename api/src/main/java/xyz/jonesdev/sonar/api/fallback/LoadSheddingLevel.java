@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.api.fallback;
+
+/**
+ * Steps Sonar takes, in order, to reduce its own load when the server is falling behind.
+ * Every level also includes all measures of the levels below it.
+ */
+public enum LoadSheddingLevel {
+  NONE,
+  // Only poll a fraction of the queue every second and limit the size of the queue
+  SHRINK_QUEUE,
+  // Skip the map captcha (unless a player failed another check) and stop preparing new ones
+  SKIP_CAPTCHA,
+  // Don't start any new verifications, but keep the queue
+  PAUSE_VERIFICATION,
+  // Disconnect new unverified players straight away
+  REJECT_LOGINS;
+
+  public boolean isAtLeast(final LoadSheddingLevel level) {
+    return compareTo(level) >= 0;
+  }
+}
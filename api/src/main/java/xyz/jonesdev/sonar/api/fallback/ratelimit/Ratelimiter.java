@@ -22,4 +22,24 @@
 @FunctionalInterface
 public interface Ratelimiter<T> {
   boolean attempt(final @NotNull T t);
+
+  /**
+   * Checks if the given key is currently being rate-limited
+   * without counting this check as a new attempt.
+   */
+  default boolean isRatelimited(final @NotNull T t) {
+    return false;
+  }
+
+  /**
+   * Lets the rate-limiter know that the given key has failed the verification
+   */
+  default void countFailure(final @NotNull T t) {
+  }
+
+  /**
+   * Lets the rate-limiter know that the given key has passed the verification
+   */
+  default void countSuccess(final @NotNull T t) {
+  }
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.api.statistics;
+
+import java.util.Arrays;
+
+/**
+ * Count-Min sketch that estimates how often each key has been counted in a fixed amount of memory.
+ * Estimates are never too low, and they are only too high by a small fraction
+ * of the total count, which doesn't matter for the keys that have been counted the most.
+ * This class is not thread-safe.
+ *
+ * @see <a href="https://en.wikipedia.org/wiki/Count%E2%80%93min_sketch">Count-Min sketch</a>
+ */
+public final class CountMinSketch {
+  private static final int DEPTH = 4;
+
+  private final int[] counters;
+  private final int width, mask;
+
+  /**
+   * @param width Number of counters per row; must be a power of two of at most 65536
+   */
+  public CountMinSketch(final int width) {
+    if (Integer.bitCount(width) != 1 || width > 1 << 16) {
+      throw new IllegalArgumentException("Invalid width: " + width);
+    }
+    this.width = width;
+    this.mask = width - 1;
+    this.counters = new int[DEPTH * width];
+  }
+
+  /**
+   * Counts the given key once
+   *
+   * @param hash Well-distributed 64-bit hash of the key
+   * @return New estimate of the given key
+   */
+  public int add(final long hash) {
+    final int estimate = estimate(hash) + 1;
+    // Conservative update: only raise the counters that are below the new estimate,
+    // which keeps other keys that share some of the counters from being overestimated
+    for (int row = 0; row < DEPTH; row++) {
+      final int index = index(hash, row);
+      if (counters[index] < estimate) {
+        counters[index] = estimate;
+      }
+    }
+    return estimate;
+  }
+
+  /**
+   * @param hash Well-distributed 64-bit hash of the key
+   * @return Estimated number of times the given key has been counted
+   */
+  public int estimate(final long hash) {
+    int estimate = Integer.MAX_VALUE;
+    for (int row = 0; row < DEPTH; row++) {
+      estimate = Math.min(estimate, counters[index(hash, row)]);
+    }
+    return estimate;
+  }
+
+  public void clear() {
+    Arrays.fill(counters, 0);
+  }
+
+  private int index(final long hash, final int row) {
+    // Every row uses a different part of the hash, so the rows are independent of each other
+    return row * width + ((int) (hash >>> (row << 4)) & mask);
+  }
+}
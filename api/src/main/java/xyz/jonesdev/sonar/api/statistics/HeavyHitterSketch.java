@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.api.statistics;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps track of the keys that have been counted the most (heavy hitters) in a fixed amount of memory.
+ * Counts are estimated using a {@link CountMinSketch}, while only a small number of candidates
+ * are remembered. Just like in the Space-Saving algorithm, a new key replaces the candidate
+ * with the lowest count once it has been counted more often.
+ * This class is thread-safe.
+ */
+public final class HeavyHitterSketch<T> {
+  private final CountMinSketch sketch;
+  private final long[] hashes;
+  private final Object[] items;
+  private final int[] counts;
+  private int size;
+
+  /**
+   * @param width    Number of counters per row of the Count-Min sketch
+   * @param capacity Number of candidates that are remembered
+   */
+  public HeavyHitterSketch(final int width, final int capacity) {
+    this.sketch = new CountMinSketch(width);
+    this.hashes = new long[capacity];
+    this.items = new Object[capacity];
+    this.counts = new int[capacity];
+  }
+
+  /**
+   * Counts the given key once
+   *
+   * @param hash Well-distributed 64-bit hash of the key
+   * @param item Key that is shown if it becomes one of the heavy hitters
+   */
+  public synchronized void add(final long hash, final @NotNull T item) {
+    final int estimate = sketch.add(hash);
+
+    int minimum = -1;
+    for (int i = 0; i < size; i++) {
+      if (hashes[i] == hash) {
+        counts[i] = estimate;
+        return;
+      }
+      if (minimum == -1 || counts[i] < counts[minimum]) {
+        minimum = i;
+      }
+    }
+
+    if (size < hashes.length) {
+      minimum = size++;
+    } else if (estimate <= counts[minimum]) {
+      return;
+    }
+    hashes[minimum] = hash;
+    items[minimum] = item;
+    counts[minimum] = estimate;
+  }
+
+  /**
+   * @param limit Maximum number of entries
+   * @return Heavy hitters, starting with the one that has been counted the most
+   */
+  @SuppressWarnings("unchecked")
+  public synchronized @NotNull List<Entry<T>> getTop(final int limit) {
+    final List<Entry<T>> top = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      top.add(new Entry<>((T) items[i], counts[i]));
+    }
+    top.sort((first, second) -> Integer.compare(second.count, first.count));
+    return top.size() > limit ? top.subList(0, limit) : top;
+  }
+
+  public synchronized void clear() {
+    sketch.clear();
+    Arrays.fill(items, null);
+    size = 0;
+  }
+
+  @Getter
+  @ToString
+  @RequiredArgsConstructor
+  public static final class Entry<T> {
+    private final T item;
+    private final int count;
+  }
+}
@@ -50,4 +50,11 @@ public interface SonarStatistics {
   long getCurrentBlacklistSize();
 
   long getTotalBlacklistSize();
+
+  /**
+   * @return Current delay (in milliseconds) of the event loops; 0 if the implementation doesn't measure it
+   */
+  default long getEventLoopDelay() {
+    return 0L;
+  }
 }
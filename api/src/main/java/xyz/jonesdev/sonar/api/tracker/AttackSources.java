@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.api.tracker;
+
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+import xyz.jonesdev.sonar.api.Sonar;
+import xyz.jonesdev.sonar.api.fallback.InetAddressKeys;
+import xyz.jonesdev.sonar.api.fallback.protocol.ProtocolVersion;
+import xyz.jonesdev.sonar.api.statistics.HeavyHitterSketch;
+import xyz.jonesdev.sonar.api.statistics.HyperLogLog;
+
+import java.net.InetAddress;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Keeps track of where logins come from. Every login is counted, but the sketches are
+ * cleared when an attack starts, so they describe the current (or last) attack.
+ * All sketches have a fixed size, so the memory usage doesn't depend on the size of the attack.
+ */
+@Getter
+public final class AttackSources {
+  // Number of entries shown in the attack summary and the statistics
+  private static final int TOP_ENTRIES = 5;
+  private static final int MAXIMUM_BRAND_LENGTH = 32;
+
+  private final HeavyHitterSketch<InetAddress> networks = new HeavyHitterSketch<>(4096, 32);
+  private final HeavyHitterSketch<String> usernames = new HeavyHitterSketch<>(4096, 32);
+  private final HeavyHitterSketch<String> clientBrands = new HeavyHitterSketch<>(1024, 16);
+  private final HeavyHitterSketch<ProtocolVersion> protocolVersions = new HeavyHitterSketch<>(256, 16);
+  private final HyperLogLog uniqueAddresses = new HyperLogLog();
+  private final HyperLogLog uniqueNetworks = new HyperLogLog();
+  private final HyperLogLog uniqueUsernames = new HyperLogLog();
+
+  public void countLogin(final @NotNull InetAddress inetAddress,
+                         final @NotNull String username,
+                         final @NotNull ProtocolVersion protocolVersion) {
+    final long networkHash = InetAddressKeys.mix(InetAddressKeys.networkKey(inetAddress));
+    final long usernameHash = hash(username);
+    networks.add(networkHash, inetAddress);
+    usernames.add(usernameHash, username);
+    protocolVersions.add(InetAddressKeys.mix(protocolVersion.getProtocol()), protocolVersion);
+    uniqueAddresses.add(InetAddressKeys.mix(InetAddressKeys.key(inetAddress)));
+    uniqueNetworks.add(networkHash);
+    uniqueUsernames.add(usernameHash);
+  }
+
+  public void countClientBrand(final @NotNull String clientBrand) {
+    // Bots can send client brands of any length, so we only keep the beginning
+    final String truncated = clientBrand.length() > MAXIMUM_BRAND_LENGTH
+      ? clientBrand.substring(0, MAXIMUM_BRAND_LENGTH) : clientBrand;
+    clientBrands.add(hash(truncated), truncated);
+  }
+
+  public void clear() {
+    networks.clear();
+    usernames.clear();
+    clientBrands.clear();
+    protocolVersions.clear();
+    uniqueAddresses.clear();
+    uniqueNetworks.clear();
+    uniqueUsernames.clear();
+  }
+
+  public @NotNull String formatNetworks() {
+    return format(networks, InetAddressKeys::formatNetwork);
+  }
+
+  public @NotNull String formatUsernames() {
+    return format(usernames, Function.identity());
+  }
+
+  public @NotNull String formatClientBrands() {
+    return format(clientBrands, Function.identity());
+  }
+
+  public @NotNull String formatProtocolVersions() {
+    return format(protocolVersions, ProtocolVersion::getName);
+  }
+
+  private static <T> @NotNull String format(final @NotNull HeavyHitterSketch<T> sketch,
+                                            final @NotNull Function<T, String> formatter) {
+    final List<HeavyHitterSketch.Entry<T>> top = sketch.getTop(TOP_ENTRIES);
+    if (top.isEmpty()) {
+      return "-";
+    }
+    final StringBuilder builder = new StringBuilder();
+    for (final HeavyHitterSketch.Entry<T> entry : top) {
+      if (builder.length() > 0) {
+        builder.append(", ");
+      }
+      builder.append(formatter.apply(entry.getItem()))
+        .append(" (").append(Sonar.DECIMAL_FORMAT.format(entry.getCount())).append(')');
+    }
+    return builder.toString();
+  }
+
+  // 64-bit FNV-1a, since the 32-bit hash code of a string would make the sketches less accurate
+  private static long hash(final @NotNull String value) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < value.length(); i++) {
+      hash ^= value.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    return InetAddressKeys.mix(hash);
+  }
+}
@@ -36,6 +36,8 @@ public final class AttackTracker {
 
   private @Nullable AttackStatistics currentAttack;
   private int attackThreshold;
+  // Where the logins of the current (or last) attack come from
+  private final AttackSources sources = new AttackSources();
 
   @Getter
   @ToString
@@ -53,8 +55,8 @@ public static final class AttackStatistics {
 
   public void checkIfUnderAttack() {
     final long joinsPerSecond = Sonar.get0().getStatistics().getLoginsPerSecond();
-    final int verifyingPlayers = Sonar.get0().getFallback().getConnected().size();
-    final int queuedPlayers = Sonar.get0().getFallback().getQueue().getPlayers().size();
+    final int verifyingPlayers = Sonar.get0().getFallback().getAddressTable().getVerifyingCount();
+    final int queuedPlayers = Sonar.get0().getFallback().getQueue().getSize();
     final int minPlayers = Sonar.get0().getConfig().getMinPlayersForAttack();
 
     if (joinsPerSecond > minPlayers // Check the number of bots/joins per second.
@@ -66,6 +68,8 @@ public void checkIfUnderAttack() {
       // An attack has been detected
       if (currentAttack == null) {
         currentAttack = new AttackStatistics();
+        // Only count the logins of this attack; everything before is noise
+        sources.clear();
         currentAttack.successfulVerifications = Sonar.get0().getVerifiedPlayerController().getCache().size();
         currentAttack.failedVerifications = Sonar.get0().getStatistics().getTotalFailedVerifications();
         Sonar.get0().getEventManager().publish(new AttackDetectedEvent());
@@ -116,12 +120,19 @@ public void checkIfUnderAttack() {
               final String formattedDuration = String.format("%d minutes, %.0f seconds", minutes, seconds);
               final String startTimestamp = String.valueOf(currentAttack.duration.getStart() / 1000L);
               final String endTimestamp = String.valueOf(System.currentTimeMillis() / 1000L);
-              final long blacklisted = Sonar.get0().getFallback().getBlacklist().estimatedSize();
+              final long blacklisted = Sonar.get0().getFallback().getBlacklist().size();
               // Calculate during-attack-statistics using their deltas
               final long totalVerified = Sonar.get0().getVerifiedPlayerController().getCache().size();
               final long verified = Math.max(totalVerified - currentAttack.successfulVerifications, 0);
               final long totalFailed = Sonar.get0().getStatistics().getTotalFailedVerifications();
               final long failed = Math.max(totalFailed - currentAttack.failedVerifications, 0);
+              final String uniqueIps = Sonar.DECIMAL_FORMAT.format(sources.getUniqueAddresses().estimate());
+              final String uniqueNetworks = Sonar.DECIMAL_FORMAT.format(sources.getUniqueNetworks().estimate());
+              final String uniqueUsernames = Sonar.DECIMAL_FORMAT.format(sources.getUniqueUsernames().estimate());
+              final String topNetworks = sources.formatNetworks();
+              final String topUsernames = sources.formatUsernames();
+              final String topClientBrands = sources.formatClientBrands();
+              final String topProtocols = sources.formatProtocolVersions();
 
               webhook.post(() -> {
                 final SonarConfiguration.Webhook.Embed config = Sonar.get0().getConfig().getWebhook().getEmbed();
@@ -135,7 +146,14 @@ public void checkIfUnderAttack() {
                   .replace("<peak-cps>", peakCPS)
                   .replace("<total-blacklisted>", Sonar.DECIMAL_FORMAT.format(blacklisted))
                   .replace("<total-failed>", Sonar.DECIMAL_FORMAT.format(failed))
-                  .replace("<total-success>", Sonar.DECIMAL_FORMAT.format(verified));
+                  .replace("<total-success>", Sonar.DECIMAL_FORMAT.format(verified))
+                  .replace("<unique-ips>", uniqueIps)
+                  .replace("<unique-networks>", uniqueNetworks)
+                  .replace("<unique-usernames>", uniqueUsernames)
+                  .replace("<top-networks>", topNetworks)
+                  .replace("<top-usernames>", topUsernames)
+                  .replace("<top-client-brands>", topClientBrands)
+                  .replace("<top-protocols>", topProtocols);
                 return new SonarConfiguration.Webhook.Embed(
                   config.getTitle(), config.getTitleUrl(), description, config.getR(), config.getG(), config.getB());
               });
@@ -25,6 +25,10 @@
     testCompileOnly(rootProject.libs.lombok)
     testAnnotationProcessor(rootProject.libs.lombok)
 
+    testImplementation(platform(rootProject.libs.junit.bom))
+    testImplementation(rootProject.libs.junit.jupiter)
+    testRuntimeOnly(rootProject.libs.junit.launcher)
+
     compileOnly(rootProject.libs.adventure.minimessage)
     compileOnly(rootProject.libs.adventure.serializer)
     compileOnly(rootProject.libs.ormlite)
@@ -76,6 +80,10 @@
       options.encoding = "UTF-8"
     }
 
+    test {
+      useJUnitPlatform()
+    }
+
     jar {
       manifest {
         val indra = rootProject.extensions.getByType(IndraGitExtension::class.java)
@@ -101,7 +109,7 @@
 tasks {
   // This is a small wrapper tasks to simplify the building process
   register("build-sonar") {
-    val subprojects = listOf("api", "captcha", "common", "bukkit", "bungeecord", "velocity")
+    val subprojects = listOf("api", "captcha", "common", "bukkit", "bungeecord", "velocity", "standalone")
     val buildTasks = subprojects.flatMap { listOf("$it:clean", "$it:spotlessApply", "$it:shadowJar") }
     dependsOn(buildTasks)
   }
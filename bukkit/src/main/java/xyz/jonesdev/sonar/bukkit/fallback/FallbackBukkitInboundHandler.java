@@ -33,6 +33,7 @@
 
 import java.net.InetSocketAddress;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static xyz.jonesdev.sonar.api.fallback.FallbackPipelines.FALLBACK_INBOUND_HANDLER;
 import static xyz.jonesdev.sonar.common.fallback.protocol.packets.handshake.HandshakePacket.*;
@@ -117,7 +118,10 @@ public void channelRead(final @NotNull ChannelHandlerContext ctx, final Object m
           case LOGIN:
           case TRANSFER:
             // Let the actual handler know about the handshake packet
-            handleHandshake(ctx, handshake.getHostname(), handshake.getProtocolVersionId());
+            if (!handleHandshake(ctx, handshake.getHostname(), handshake.getProtocolVersionId())) {
+              byteBuf.release();
+              return;
+            }
             // Be ready for the next packet (which is supposed to be a login packet)
             updateRegistry(FallbackPacketRegistry.LOGIN, Objects.requireNonNull(protocolVersion));
             break;
@@ -130,17 +134,27 @@ public void channelRead(final @NotNull ChannelHandlerContext ctx, final Object m
         final InetSocketAddress socketAddress = (InetSocketAddress) ctx.channel().remoteAddress();
         // We've done our job - deject this pipeline
         ctx.pipeline().remove(this);
+        // The login might only be passed on later (see FallbackLoginPacer), so the buffer
+        // is kept until it has been passed on or until the channel has been closed
+        final AtomicBoolean passedOn = new AtomicBoolean();
+        ctx.channel().closeFuture().addListener(future -> {
+          if (passedOn.compareAndSet(false, true)) {
+            byteBuf.release();
+          }
+        });
         // Let Sonar process the login packet
         handleLogin(ctx, () -> {
+          if (!passedOn.compareAndSet(false, true)) {
+            return;
+          }
           byteBuf.readerIndex(originalReaderIndex);
-          ctx.fireChannelRead(byteBuf.retain());
+          ctx.fireChannelRead(byteBuf);
           // TODO: recode this?
           final ChannelHandler inboundHandler = ctx.pipeline().remove(FALLBACK_INBOUND_HANDLER);
           if (inboundHandler != null) {
             channelRemovalListener.accept(ctx.pipeline(), FALLBACK_INBOUND_HANDLER, inboundHandler);
           }
         }, loginStart.getUsername(), socketAddress);
-        byteBuf.release();
         return;
       }
 
@@ -59,8 +59,10 @@ public void channelRead(final @NotNull ChannelHandlerContext ctx, final Object m
           // We don't care about server pings; remove the handler
           if (handshake.getRequestedProtocol() == STATUS) {
             ctx.pipeline().remove(this);
-          } else {
-            handleHandshake(ctx, handshake.getHost(), handshake.getProtocolVersion());
+          } else if (!handleHandshake(ctx, handshake.getHost(), handshake.getProtocolVersion())) {
+            // Make sure to mark this packet as released
+            packetWrapper.trySingleRelease();
+            return;
           }
         } else if (wrappedPacket instanceof LoginRequest) {
           // Make sure to use the potentially modified, real IP
@@ -27,7 +27,9 @@
 import org.jetbrains.annotations.NotNull;
 import sun.misc.Unsafe;
 import xyz.jonesdev.sonar.api.Sonar;
+import xyz.jonesdev.sonar.common.fallback.FallbackConnectionFilter;
 import xyz.jonesdev.sonar.common.fallback.netty.FallbackInjectedChannelInitializer;
+import xyz.jonesdev.sonar.common.util.FakeChannelUtil;
 
 import java.lang.reflect.Field;
 
@@ -82,6 +84,10 @@ private static void injectOnModernBungeeCord() {
     final BungeeChannelInitializer original = ProxyServer.getInstance().unsafe().getFrontendChannelInitializer();
     final BungeeChannelInitializer newInitializer = BungeeChannelInitializer.create(
       channel -> {
+        // Close unwanted connections before BungeeCord builds its pipeline
+        if (!FakeChannelUtil.isFakeChannel(channel) && !FallbackConnectionFilter.accept(channel)) {
+          return false;
+        }
         // https://github.com/SpigotMC/BungeeCord/pull/3787#issuecomment-2661059876
         if (!original.getChannelAcceptor().accept(channel)) {
           return false;
@@ -2,4 +2,6 @@
   compileOnly(project(":api"))
   implementation(project(":captcha"))
   compileOnly(rootProject.libs.adventure.nbt)
+
+  testImplementation(project(":api"))
 }
@@ -18,8 +18,6 @@
 package xyz.jonesdev.sonar.common.boot;
 
 import com.alessiodp.libby.LibraryManager;
-import com.github.benmanes.caffeine.cache.Caffeine;
-import com.github.benmanes.caffeine.cache.Ticker;
 import com.j256.ormlite.logger.Level;
 import com.j256.ormlite.logger.Logger;
 import lombok.Getter;
@@ -36,16 +34,19 @@
 import xyz.jonesdev.sonar.api.notification.ChatNotificationHandler;
 import xyz.jonesdev.sonar.api.statistics.SonarStatistics;
 import xyz.jonesdev.sonar.api.timer.SystemTimer;
+import xyz.jonesdev.sonar.common.fallback.FallbackBlacklistStorage;
+import xyz.jonesdev.sonar.common.fallback.FallbackStatusCache;
+import xyz.jonesdev.sonar.common.fallback.geoip.FallbackGeoIP;
+import xyz.jonesdev.sonar.common.fallback.netty.FallbackEventLoopGroup;
 import xyz.jonesdev.sonar.common.fallback.protocol.FallbackPreparer;
-import xyz.jonesdev.sonar.common.fallback.ratelimit.CaffeineCacheRatelimiter;
 import xyz.jonesdev.sonar.common.fallback.ratelimit.NoopCacheRatelimiter;
+import xyz.jonesdev.sonar.common.fallback.ratelimit.TokenBucketRatelimiter;
 import xyz.jonesdev.sonar.common.service.ScheduledServiceManager;
 import xyz.jonesdev.sonar.common.statistics.GlobalSonarStatistics;
 import xyz.jonesdev.sonar.common.subcommand.*;
 import xyz.jonesdev.sonar.common.util.ProtocolUtil;
 
 import java.io.File;
-import java.time.Duration;
 
 @Getter
 @RequiredArgsConstructor
@@ -103,6 +104,9 @@ public final void initialize() {
     // Reload configuration
     reload();
 
+    // Restore the blacklist from before the last restart
+    FallbackBlacklistStorage.load();
+
     getLogger().info("Successfully initialized components in {}s!", launchTimer);
     getLogger().info("Enabling all tasks and features...");
 
@@ -135,32 +139,25 @@ public final void reload() {
       getLogger().warn("Reloading after changing the database type is not recommended as it may cause data loss.");
     }
 
+    // Reopen the GeoIP databases
+    FallbackGeoIP.reload();
+
     // Prepare cached packets
     getLogger().info("Taking cached snapshots of all packets...");
     FallbackPreparer.prepare();
 
+    // Server list responses might have changed
+    FallbackStatusCache.clear();
+
     // Update ratelimiter cache
-    getFallback().setRatelimiter(getConfig().getVerification().getReconnectDelay() > 0L
-      ? new CaffeineCacheRatelimiter(Duration.ofMillis(getConfig().getVerification().getReconnectDelay()))
-      : NoopCacheRatelimiter.INSTANCE);
-
-    // Update blacklist cache
-    final long blacklistTime = getConfig().getVerification().getBlacklistTime();
-    final boolean blacklistExists = getFallback().getBlacklist() != null;
-    // Make sure the blacklist is only set when we need it to prevent data loss
-    if (!blacklistExists // Make sure we create a new cache if it doesn't exist yet
-      || getFallback().getBlacklistTime() != blacklistTime) {
-      // Create a new cache with the configured blacklist time
-      getFallback().setBlacklist(Caffeine.newBuilder()
-        .expireAfterWrite(Duration.ofMillis(getConfig().getVerification().getBlacklistTime()))
-        .ticker(Ticker.systemTicker())
-        .build());
-      // Store the new blacklist time, so we don't have to reset the blacklist every reload
-      getFallback().setBlacklistTime(blacklistTime);
-      // Warn the user about changing the expiry of the blacklist values
-      if (blacklistExists) {
-        getLogger().warn("The blacklist has been reset as the duration of entries has changed.");
-      }
+    final SonarConfiguration.Verification verification = getConfig().getVerification();
+    if (verification.getLoginLimit().getCapacity() <= 0
+      && verification.getFailedLimit().getCapacity() <= 0
+      && verification.getSucceededLimit().getCapacity() <= 0) {
+      getFallback().setRatelimiter(NoopCacheRatelimiter.INSTANCE);
+    } else if (!(getFallback().getRatelimiter() instanceof TokenBucketRatelimiter)) {
+      // Keep the buckets when reloading, so rate-limited IP addresses don't start fresh
+      getFallback().setRatelimiter(new TokenBucketRatelimiter());
     }
 
     // Reinitialize database controller
@@ -176,6 +173,9 @@ public final void shutdown() {
     getLogger().info("Starting shutdown process...");
     // Interrupt threads
     ScheduledServiceManager.stop();
+    FallbackEventLoopGroup.shutdown();
+    // Save the blacklist before closing the database connection
+    FallbackBlacklistStorage.save();
     // Close database connection if present
     if (verifiedPlayerController != null) {
       verifiedPlayerController.close();
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.common.fallback;
+
+import io.netty.channel.Channel;
+import lombok.experimental.UtilityClass;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import xyz.jonesdev.sonar.api.Sonar;
+import xyz.jonesdev.sonar.api.config.SonarConfiguration;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the rate at which new connections are accepted.
+ * Once the configured ceiling is exceeded, new connections are dropped randomly
+ * with a chance that matches the overload. The chance is halved every second
+ * the ceiling is not exceeded anymore, so the server recovers gradually.
+ */
+@UtilityClass
+public class FallbackAcceptGovernor {
+  private final AtomicInteger CONNECTIONS_THIS_SECOND = new AtomicInteger();
+  private final Set<Channel> PAUSED_SERVER_CHANNELS = ConcurrentHashMap.newKeySet();
+  private final double MAX_DROP_CHANCE = 0.99;
+  private final double MIN_DROP_CHANCE = 0.01;
+  private final long PAUSE_MILLIS = 100L;
+  private volatile double dropChance;
+
+  /**
+   * @param channel Newly accepted channel
+   * @return true if the connection should be accepted
+   */
+  public boolean shouldAccept(final @NotNull Channel channel) {
+    final SonarConfiguration.Connections config = Sonar.get0().getConfig().getConnections();
+    final int maxConnectionsPerSecond = config.getMaxConnectionsPerSecond();
+    if (maxConnectionsPerSecond <= 0) {
+      return true;
+    }
+
+    // Always drop connections once the ceiling has been reached for this second
+    if (CONNECTIONS_THIS_SECOND.incrementAndGet() > maxConnectionsPerSecond) {
+      if (config.isPauseAccepting()) {
+        pause(channel.parent());
+      }
+      return false;
+    }
+
+    final double chance = dropChance;
+    return chance == 0 || ThreadLocalRandom.current().nextDouble() >= chance;
+  }
+
+  /**
+   * Stops the server channel from accepting new connections for a short amount of time.
+   * Pending connections stay in the kernel's backlog (or are dropped by it) in the meantime.
+   */
+  private void pause(final @Nullable Channel serverChannel) {
+    if (serverChannel == null || !PAUSED_SERVER_CHANNELS.add(serverChannel)) {
+      return;
+    }
+
+    serverChannel.config().setAutoRead(false);
+    serverChannel.eventLoop().schedule(() -> {
+      serverChannel.config().setAutoRead(true);
+      PAUSED_SERVER_CHANNELS.remove(serverChannel);
+    }, PAUSE_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  public void hitEverySecond() {
+    final int connections = CONNECTIONS_THIS_SECOND.getAndSet(0);
+    final int maxConnectionsPerSecond = Sonar.get0().getConfig().getConnections().getMaxConnectionsPerSecond();
+
+    if (maxConnectionsPerSecond > 0 && connections > maxConnectionsPerSecond) {
+      // Drop enough connections to get back below the ceiling, but don't lower
+      // the chance by more than half at once to avoid oscillating
+      final double targetChance = 1 - (double) maxConnectionsPerSecond / connections;
+      dropChance = Math.min(MAX_DROP_CHANCE, Math.max(targetChance, dropChance / 2));
+    } else {
+      // Slowly start accepting all connections again
+      final double chance = dropChance / 2;
+      dropChance = chance < MIN_DROP_CHANCE ? 0 : chance;
+    }
+  }
+}
@@ -19,25 +19,24 @@
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelDuplexHandler;
-import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
-import lombok.AccessLevel;
-import lombok.NoArgsConstructor;
 import org.jetbrains.annotations.NotNull;
 import xyz.jonesdev.sonar.common.statistics.GlobalSonarStatistics;
 
-@ChannelHandler.Sharable
-@NoArgsConstructor(access = AccessLevel.PRIVATE)
+/**
+ * Counts the traffic of a single channel and only publishes it to the global statistics
+ * once the handler is removed (either when Sonar's handlers are stripped or when the channel is closed),
+ * so the shared counters are only updated once per connection.
+ */
 public final class FallbackBandwidthHandler extends ChannelDuplexHandler {
-  public static final ChannelHandler INSTANCE = new FallbackBandwidthHandler();
+  private long incomingTraffic, outgoingTraffic;
 
   @Override
   public void channelRead(final ChannelHandlerContext ctx, final @NotNull Object msg) throws Exception {
     if (msg instanceof ByteBuf) {
       // Increment the incoming traffic by the number of readable bytes
-      final int readableBytes = ((ByteBuf) msg).readableBytes();
-      GlobalSonarStatistics.perSecondIncomingTraffic += readableBytes;
+      incomingTraffic += ((ByteBuf) msg).readableBytes();
     }
     ctx.fireChannelRead(msg);
   }
@@ -46,9 +45,20 @@ public void channelRead(final ChannelHandlerContext ctx, final @NotNull Object m
   public void write(final ChannelHandlerContext ctx, final Object msg, final ChannelPromise promise) throws Exception {
     if (msg instanceof ByteBuf) {
       // Increment the outgoing traffic by the number of readable bytes
-      final int readableBytes = ((ByteBuf) msg).readableBytes();
-      GlobalSonarStatistics.perSecondOutgoingTraffic += readableBytes;
+      outgoingTraffic += ((ByteBuf) msg).readableBytes();
     }
     ctx.write(msg, promise);
   }
+
+  @Override
+  public void handlerRemoved(final ChannelHandlerContext ctx) throws Exception {
+    if (incomingTraffic > 0L) {
+      GlobalSonarStatistics.countIncomingTraffic(incomingTraffic);
+      incomingTraffic = 0L;
+    }
+    if (outgoingTraffic > 0L) {
+      GlobalSonarStatistics.countOutgoingTraffic(outgoingTraffic);
+      outgoingTraffic = 0L;
+    }
+  }
 }
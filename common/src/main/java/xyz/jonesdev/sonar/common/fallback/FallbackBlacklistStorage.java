@@ -0,0 +1,309 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.common.fallback;
+
+import lombok.experimental.UtilityClass;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import xyz.jonesdev.sonar.api.Sonar;
+import xyz.jonesdev.sonar.api.database.model.BlacklistEntry;
+import xyz.jonesdev.sonar.api.fallback.AddressRangeTrie;
+import xyz.jonesdev.sonar.api.fallback.ExpiringAddressTable;
+import xyz.jonesdev.sonar.api.fallback.Fallback;
+import xyz.jonesdev.sonar.api.fallback.InetAddressKeys;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Saves the blacklist to a compact binary file (and optionally to the database),
+ * so blacklisted IP addresses and networks are still known after restarting the server.
+ * Every entry is saved together with the time at which it expires,
+ * so it is only restored for the time it has left.
+ */
+@UtilityClass
+public class FallbackBlacklistStorage {
+  private final String FILE_NAME = "blacklist.dat";
+  // "SNRB" followed by the version of the file format
+  private final int MAGIC = 0x534E5242;
+  private final int VERSION = 1;
+
+  private int secondsSinceLastSave;
+
+  // Sorted hashes of the keys of all entries that have been written to the database,
+  // the hashes of their values and expiry times, and their expiry times (null until the first save)
+  private volatile long @Nullable [] savedKeys;
+  private long[] savedValues, savedExpiries;
+
+  public void hitEverySecond() {
+    final int interval = Sonar.get0().getConfig().getVerification().getBlacklistSaveInterval();
+    if (interval <= 0 || ++secondsSinceLastSave < interval) {
+      return;
+    }
+    secondsSinceLastSave = 0;
+    save();
+  }
+
+  /**
+   * Writes all entries of the blacklist that haven't expired yet to the disk
+   */
+  public synchronized void save() {
+    if (Sonar.get0().getConfig().getVerification().getBlacklistSaveInterval() <= 0) {
+      return;
+    }
+
+    final Fallback fallback = Sonar.get0().getFallback();
+    final List<BlacklistEntry> entries = Sonar.get0().getConfig().getDatabase().isSaveBlacklist()
+      ? new ArrayList<>() : null;
+    final File file = new File(Sonar.get0().getConfig().getPluginFolder(), FILE_NAME);
+    final File temporaryFile = new File(Sonar.get0().getConfig().getPluginFolder(), FILE_NAME + ".tmp");
+
+    try (final DataOutputStream outputStream = new DataOutputStream(
+      new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+      outputStream.writeInt(MAGIC);
+      outputStream.writeInt(VERSION);
+      writeTable(outputStream, fallback.getBlacklist(), BlacklistEntry.ADDRESS, entries);
+      writeTrie(outputStream, fallback.getBlacklistedNetworks(), entries);
+      writeTable(outputStream, fallback.getBlacklistedPerNetwork(), BlacklistEntry.NETWORK_COUNT, entries);
+    } catch (IOException | UncheckedIOException exception) {
+      Sonar.get0().getLogger().error("Could not save the blacklist: {}", exception);
+      return;
+    }
+
+    try {
+      // Don't leave a broken file behind if the server stops while we're writing it
+      Files.move(temporaryFile.toPath(), file.toPath(),
+        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException exception) {
+      Sonar.get0().getLogger().error("Could not save the blacklist: {}", exception);
+      return;
+    }
+
+    if (entries != null) {
+      saveToDatabase(entries);
+    }
+  }
+
+  // Only writes the entries that are new or have changed since the last save to the database,
+  // since rewriting the entire blacklist every time would keep the database busy during attacks
+  private void saveToDatabase(final @NotNull List<BlacklistEntry> entries) {
+    entries.sort(Comparator.comparingLong(FallbackBlacklistStorage::keyOf));
+
+    final int size = entries.size();
+    final long[] keys = new long[size];
+    final long[] values = new long[size];
+    final long[] expiries = new long[size];
+    for (int i = 0; i < size; i++) {
+      final BlacklistEntry entry = entries.get(i);
+      keys[i] = keyOf(entry);
+      expiries[i] = entry.getExpiry().getTime();
+      values[i] = InetAddressKeys.mix(entry.getValue() ^ InetAddressKeys.mix(expiries[i]));
+    }
+
+    final List<BlacklistEntry> changed = changedSinceLastSave(entries, keys, values);
+    savedKeys = keys;
+    savedValues = values;
+    savedExpiries = expiries;
+    // Write the entire blacklist again next time if the database couldn't be updated
+    Sonar.get0().getVerifiedPlayerController().saveBlacklist(
+      changed == null ? entries : changed, changed == null, () -> savedKeys = null);
+  }
+
+  /**
+   * @return All entries that are new or have changed since the last save,
+   * or null if the entire blacklist has to be written to the database again
+   */
+  private @Nullable List<BlacklistEntry> changedSinceLastSave(final @NotNull List<BlacklistEntry> entries,
+                                                              final long @NotNull [] keys,
+                                                              final long @NotNull [] values) {
+    final long[] previousKeys = savedKeys;
+    if (previousKeys == null) {
+      return null;
+    }
+
+    final long now = System.currentTimeMillis();
+    final List<BlacklistEntry> changed = new ArrayList<>();
+    int previous = 0;
+    for (int i = 0; i < keys.length; i++) {
+      // Expired entries are deleted by the database controller, but entries that
+      // have been removed before expiring (e.g. using /sonar blacklist remove)
+      // can only be deleted by writing the entire blacklist again
+      while (previous < previousKeys.length && previousKeys[previous] < keys[i]) {
+        if (savedExpiries[previous++] > now) {
+          return null;
+        }
+      }
+      if (previous < previousKeys.length && previousKeys[previous] == keys[i]) {
+        if (savedValues[previous++] != values[i]) {
+          changed.add(entries.get(i));
+        }
+      } else {
+        changed.add(entries.get(i));
+      }
+    }
+    while (previous < previousKeys.length) {
+      if (savedExpiries[previous++] > now) {
+        return null;
+      }
+    }
+    return changed;
+  }
+
+  private long keyOf(final @NotNull BlacklistEntry entry) {
+    return InetAddressKeys.mix(InetAddressKeys.mix(InetAddressKeys.mix(entry.getType())
+      ^ entry.getHigh()) ^ entry.getLow());
+  }
+
+  /**
+   * Restores all entries of the blacklist that haven't expired yet
+   * from the disk and, if enabled, from the database
+   */
+  public void load() {
+    if (Sonar.get0().getConfig().getVerification().getBlacklistSaveInterval() <= 0) {
+      return;
+    }
+
+    final Fallback fallback = Sonar.get0().getFallback();
+    final File file = new File(Sonar.get0().getConfig().getPluginFolder(), FILE_NAME);
+
+    if (file.exists()) {
+      try (final DataInputStream inputStream = new DataInputStream(
+        new BufferedInputStream(new FileInputStream(file)))) {
+        if (inputStream.readInt() != MAGIC || inputStream.readInt() != VERSION) {
+          Sonar.get0().getLogger().warn("Ignoring {} since it has been saved by a different version of Sonar.", FILE_NAME);
+        } else {
+          final int addresses = readTable(inputStream, fallback.getBlacklist());
+          final int networks = readTrie(inputStream, fallback.getBlacklistedNetworks());
+          readTable(inputStream, fallback.getBlacklistedPerNetwork());
+          Sonar.get0().getLogger().info("Restored {} blacklisted IP addresses and {} blacklisted networks.",
+            addresses, networks);
+        }
+      } catch (IOException | IllegalArgumentException exception) {
+        Sonar.get0().getLogger().error("Could not load the blacklist: {}", exception);
+      }
+    }
+
+    Sonar.get0().getVerifiedPlayerController().loadBlacklist(entries -> {
+      for (final BlacklistEntry entry : entries) {
+        final long expiry = entry.getExpiry().getTime();
+        switch (entry.getType()) {
+          case BlacklistEntry.ADDRESS:
+            fallback.getBlacklist().restore(entry.getHigh(), entry.getLow(), entry.getValue(), expiry);
+            break;
+          case BlacklistEntry.NETWORK:
+            fallback.getBlacklistedNetworks().restore(entry.getHigh(), entry.getLow(), entry.getValue(), expiry);
+            break;
+          case BlacklistEntry.NETWORK_COUNT:
+            fallback.getBlacklistedPerNetwork().restore(entry.getHigh(), entry.getLow(), entry.getValue(), expiry);
+            break;
+          default:
+            break;
+        }
+      }
+      Sonar.get0().getLogger().info("Restored {} blacklist entries from the database.", entries.size());
+    });
+  }
+
+  // Every entry is preceded by true and the end of a section is marked by false,
+  // so we don't have to count the entries before writing them
+  private void writeTable(final @NotNull DataOutputStream outputStream,
+                          final @NotNull ExpiringAddressTable table,
+                          final int type,
+                          final @Nullable List<BlacklistEntry> entries) throws IOException {
+    table.forEach((high, low, value, expiry) -> {
+      try {
+        outputStream.writeBoolean(true);
+        outputStream.writeLong(high);
+        outputStream.writeLong(low);
+        outputStream.writeInt(value);
+        outputStream.writeLong(expiry);
+      } catch (IOException exception) {
+        throw new UncheckedIOException(exception);
+      }
+      if (entries != null) {
+        entries.add(new BlacklistEntry(type, high, low, value, expiry));
+      }
+    });
+    outputStream.writeBoolean(false);
+  }
+
+  private void writeTrie(final @NotNull DataOutputStream outputStream,
+                         final @NotNull AddressRangeTrie trie,
+                         final @Nullable List<BlacklistEntry> entries) throws IOException {
+    trie.forEach((high, low, length, expiry) -> {
+      try {
+        outputStream.writeBoolean(true);
+        outputStream.writeLong(high);
+        outputStream.writeLong(low);
+        outputStream.writeByte(length);
+        outputStream.writeLong(expiry);
+      } catch (IOException exception) {
+        throw new UncheckedIOException(exception);
+      }
+      if (entries != null) {
+        entries.add(new BlacklistEntry(BlacklistEntry.NETWORK, high, low, length, expiry));
+      }
+    });
+    outputStream.writeBoolean(false);
+  }
+
+  private int readTable(final @NotNull DataInputStream inputStream,
+                        final @NotNull ExpiringAddressTable table) throws IOException {
+    int count = 0;
+    while (inputStream.readBoolean()) {
+      final long high = inputStream.readLong();
+      final long low = inputStream.readLong();
+      final int value = inputStream.readInt();
+      final long expiry = inputStream.readLong();
+      // Entries that have expired while the server was offline are skipped
+      if (expiry > System.currentTimeMillis()) {
+        table.restore(high, low, value, expiry);
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private int readTrie(final @NotNull DataInputStream inputStream,
+                       final @NotNull AddressRangeTrie trie) throws IOException {
+    int count = 0;
+    while (inputStream.readBoolean()) {
+      final long high = inputStream.readLong();
+      final long low = inputStream.readLong();
+      final int length = inputStream.readUnsignedByte();
+      final long expiry = inputStream.readLong();
+      if (expiry > System.currentTimeMillis()) {
+        trie.restore(high, low, length, expiry);
+        count++;
+      }
+    }
+    return count;
+  }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.common.fallback;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelPipeline;
+import io.netty.util.AttributeKey;
+import lombok.experimental.UtilityClass;
+import org.jetbrains.annotations.NotNull;
+import xyz.jonesdev.sonar.api.Sonar;
+import xyz.jonesdev.sonar.api.config.SonarConfiguration;
+import xyz.jonesdev.sonar.common.fallback.ratelimit.ConnectionTokenBuckets;
+import xyz.jonesdev.sonar.common.statistics.GlobalSonarStatistics;
+import xyz.jonesdev.sonar.common.util.ProtocolUtil;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+
+@UtilityClass
+public class FallbackConnectionFilter {
+  private final AttributeKey<Boolean> PROXY_PROTOCOL = AttributeKey.valueOf("sonar-proxy-protocol");
+  private final AttributeKey<Boolean> BUCKET_TOKEN_TAKEN = AttributeKey.valueOf("sonar-bucket-token-taken");
+
+  /**
+   * Checks if the connection should be accepted as soon as the channel is initialized,
+   * and closes it if it shouldn't. This runs before the server builds its own pipeline,
+   * so rejected connections do not cost us more than an accept and a close.
+   *
+   * @param channel Newly accepted channel
+   * @return false if the channel has been closed
+   */
+  public boolean accept(final @NotNull Channel channel) {
+    // Throttle new connections if the server is being flooded
+    if (!FallbackAcceptGovernor.shouldAccept(channel)) {
+      GlobalSonarStatistics.countConnection();
+      ProtocolUtil.reject(channel);
+      return false;
+    }
+
+    final SocketAddress socketAddress = channel.remoteAddress();
+    // We can only filter connections with a known IP address
+    if (!(socketAddress instanceof InetSocketAddress)) {
+      return true;
+    }
+
+    final InetAddress inetAddress = ((InetSocketAddress) socketAddress).getAddress();
+    if (shouldReject(inetAddress)) {
+      // Make sure to still count the connection for the action bar verbose and the attack tracker
+      GlobalSonarStatistics.countConnection();
+      ProtocolUtil.reject(channel);
+      return false;
+    }
+    return true;
+  }
+
+  private boolean shouldReject(final @NotNull InetAddress inetAddress) {
+    final SonarConfiguration.Connections config = Sonar.get0().getConfig().getConnections();
+    // Check if the IP address has failed the verification too many times
+    if (config.isEarlyBlacklistCheck() && Sonar.get0().getFallback().isBlacklisted(inetAddress)) {
+      return true;
+    }
+    // Check if the IP address is currently being rate-limited
+    return config.isEarlyRatelimitCheck() && Sonar.get0().getFallback().getRatelimiter().isRatelimited(inetAddress);
+  }
+
+  /**
+   * Takes a token from the buckets of the IP address and its networks.
+   * This has to wait for the handshake, as we can't tell connections from shared sources
+   * (proxies, Geyser, TCPShield) apart from connections of single players any earlier.
+   *
+   * @param channel Channel of the connection
+   * @param hostname Server address sent by the client in the handshake packet
+   * @return false if the IP address or its network is opening too many connections
+   */
+  public boolean tryAcquireToken(final @NotNull Channel channel, final @NotNull String hostname) {
+    // The sniffer and the inbound handler both see the handshake, but it should only cost one token
+    if (channel.attr(BUCKET_TOKEN_TAKEN).getAndSet(true) != null) {
+      return true;
+    }
+    final SocketAddress socketAddress = channel.remoteAddress();
+    if (!(socketAddress instanceof InetSocketAddress)) {
+      return true;
+    }
+    final InetAddress inetAddress = ((InetSocketAddress) socketAddress).getAddress();
+    // Many players share the IP address of these connections, so limiting them would lock everyone out
+    if (inetAddress.isLoopbackAddress()
+      || channel.hasAttr(PROXY_PROTOCOL)
+      || hasForwardedAddress(hostname)) {
+      return true;
+    }
+    return ConnectionTokenBuckets.tryAcquire(inetAddress);
+  }
+
+  /**
+   * Remembers if the server reads the PROXY protocol header of the connection.
+   * The decoder removes itself once it has read the header, so this has to be checked
+   * right after the server has built its pipeline.
+   *
+   * @param pipeline Pipeline of the connection
+   * @return true if the connection is using the PROXY protocol
+   */
+  public boolean markProxyProtocol(final @NotNull ChannelPipeline pipeline) {
+    for (final Map.Entry<String, ChannelHandler> entry : pipeline) {
+      if (entry.getValue().getClass().getSimpleName().equals("HAProxyMessageDecoder")) {
+        pipeline.channel().attr(PROXY_PROTOCOL).set(true);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @param hostname Server address sent by the client in the handshake packet
+   * @return true if the server address is allowed in the configuration
+   */
+  public boolean isAllowedHostname(final @NotNull String hostname) {
+    final Collection<String> allowedHostnames = Sonar.get0().getConfig().getConnections().getAllowedHostnames();
+    if (allowedHostnames.isEmpty() || allowedHostnames.contains(hostname)) {
+      return true;
+    }
+    // Check if any parent domain has been allowed using a wildcard
+    for (int i = hostname.indexOf('.'); i != -1; i = hostname.indexOf('.', i + 1)) {
+      if (allowedHostnames.contains("*" + hostname.substring(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * The IP address of these connections is taken from the server address by the server
+   * (or a plugin) later on, so the IP address of the connection itself must not be used
+   * for any checks before the server has processed the handshake.
+   *
+   * @param hostname Server address sent by the client in the handshake packet
+   * @return true if the server address carries the IP address of the player
+   * (e.g. BungeeCord's IP forwarding, Floodgate or TCPShield)
+   */
+  public boolean hasForwardedAddress(final @NotNull String hostname) {
+    // TCPShield appends data separated by three slashes
+    if (hostname.contains("///")) {
+      return true;
+    }
+    final int nullIndex = hostname.indexOf('\0');
+    // Forge appends a marker (e.g. FML2) that doesn't contain an IP address
+    return nullIndex != -1
+      && !hostname.startsWith("FML", nullIndex + 1)
+      && !hostname.startsWith("FORGE", nullIndex + 1);
+  }
+
+  /**
+   * Removes data appended to the server address by Forge or proxies
+   * and brings it into a form that can be compared to the configuration
+   */
+  public @NotNull String normalizeHostname(final @NotNull String hostname) {
+    String normalized = hostname;
+    // Forge and BungeeCord's IP forwarding append data separated by null characters
+    final int nullIndex = normalized.indexOf('\0');
+    if (nullIndex != -1) {
+      normalized = normalized.substring(0, nullIndex);
+    }
+    // TCPShield appends data separated by three slashes
+    final int slashIndex = normalized.indexOf("///");
+    if (slashIndex != -1) {
+      normalized = normalized.substring(0, slashIndex);
+    }
+    // Some clients send the fully qualified domain name
+    if (normalized.endsWith(".")) {
+      normalized = normalized.substring(0, normalized.length() - 1);
+    }
+    return normalized.toLowerCase(Locale.ROOT);
+  }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.common.fallback;
+
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.UtilityClass;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import xyz.jonesdev.sonar.api.Sonar;
+import xyz.jonesdev.sonar.api.config.SonarConfiguration;
+import xyz.jonesdev.sonar.api.fallback.Fallback;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Exports the blacklist to files that can be loaded by ipset or nftables,
+ * so the firewall can drop packets from blacklisted IP addresses and networks
+ * before they even reach the server. Each entry is exported with the time it has left,
+ * so the kernel removes it by itself once it has expired.
+ */
+@UtilityClass
+public class FallbackFirewallExporter {
+  private final String IPSET_FILE_NAME = "blacklist.ipset";
+  private final String NFTABLES_FILE_NAME = "blacklist.nft";
+  private final String PLAIN_FILE_NAME = "blacklist.txt";
+  private final String NFTABLES_TABLE = "inet sonar";
+  // ipset doesn't accept longer timeouts
+  private final long MAXIMUM_TIMEOUT = 2147483L;
+  // Same as the maximum capacity of the blacklist
+  private final int MAXIMUM_ELEMENTS = 1 << 20;
+
+  private int secondsSinceLastExport;
+  private Set<String> lastExport = Collections.emptySet();
+  private @Nullable Process command;
+
+  public void hitEverySecond() {
+    final SonarConfiguration.Firewall config = Sonar.get0().getConfig().getFirewall();
+    if (!config.isEnabled() || ++secondsSinceLastExport < config.getUpdateInterval()) {
+      return;
+    }
+    secondsSinceLastExport = 0;
+    export();
+  }
+
+  /**
+   * Writes the blacklist to the export files and runs the configured command,
+   * but only if the blacklisted IP addresses and networks have changed since the last export
+   */
+  public synchronized void export() {
+    // Don't start the command again while it's still applying the last export
+    if (command != null && command.isAlive()) {
+      return;
+    }
+
+    final List<ExportedNetwork> networks = collectNetworks();
+    // Compare the times at which the networks expire instead of their timeouts,
+    // since the timeouts change all the time, but an entry is only exported again
+    // if it has been added or its blacklist time has been extended
+    final Set<String> export = new HashSet<>(networks.size());
+    for (final ExportedNetwork network : networks) {
+      export.add(network.network + " " + network.expiry / 1000L);
+    }
+    if (export.equals(lastExport)) {
+      return;
+    }
+
+    final SonarConfiguration config = Sonar.get0().getConfig();
+    final String setName = config.getFirewall().getSetName();
+    try {
+      write(IPSET_FILE_NAME, writer -> writeIpset(writer, networks, setName));
+      write(NFTABLES_FILE_NAME, writer -> writeNftables(writer, networks, setName));
+      write(PLAIN_FILE_NAME, writer -> {
+        for (final ExportedNetwork network : networks) {
+          writer.write(network.network);
+          writer.write('\n');
+        }
+      });
+    } catch (IOException exception) {
+      Sonar.get0().getLogger().error("Could not export the blacklist: {}", exception);
+      return;
+    }
+    lastExport = export;
+
+    final String commandLine = config.getFirewall().getCommand();
+    if (commandLine != null && !commandLine.isEmpty()) {
+      try {
+        command = new ProcessBuilder("sh", "-c", commandLine)
+          .directory(config.getPluginFolder())
+          .redirectErrorStream(true)
+          .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+          .start();
+        command.onExit().thenAccept(process -> {
+          if (process.exitValue() != 0) {
+            Sonar.get0().getLogger().warn("The firewall command exited with code {}.", process.exitValue());
+          }
+        });
+      } catch (IOException exception) {
+        Sonar.get0().getLogger().error("Could not run the firewall command: {}", exception);
+      }
+    }
+  }
+
+  private @NotNull List<ExportedNetwork> collectNetworks() {
+    final List<ExportedNetwork> networks = new ArrayList<>();
+    final int threshold = Sonar.get0().getConfig().getVerification().getBlacklistThreshold();
+    // The user is allowed to disable the blacklist entirely by setting the threshold to 0
+    if (threshold <= 0) {
+      return networks;
+    }
+
+    final Fallback fallback = Sonar.get0().getFallback();
+    final SonarConfiguration.Connections connections = Sonar.get0().getConfig().getConnections();
+    final long now = System.currentTimeMillis();
+
+    // Ranges are passed on before the ranges inside them, so we only have to remember
+    // the ranges on the current path to skip ranges that are covered by another one.
+    // Sets with the interval flag in nftables don't allow overlapping ranges.
+    final Deque<long[]> path = new ArrayDeque<>();
+    fallback.getBlacklistedNetworks().forEach((high, low, length, expiry) -> {
+      while (!path.isEmpty() && !isPrefix(path.peek(), high, low)) {
+        path.pop();
+      }
+      if (!path.isEmpty()) return;
+      path.push(new long[]{high, low, length});
+
+      final boolean ipv4 = isIpv4(high, low);
+      networks.add(new ExportedNetwork(format(high, low, ipv4 ? length - 96 : length, ipv4),
+        !ipv4, expiry, toTimeout(expiry, now)));
+    });
+
+    // IP addresses are stored after aggregating them to the configured address prefix
+    fallback.getBlacklist().forEach((high, low, value, expiry) -> {
+      if (value < threshold) return;
+      final boolean ipv4 = isIpv4(high, low);
+      final InetAddress inetAddress = toInetAddress(high, low, ipv4);
+      if (fallback.getBlacklistedNetworks().contains(inetAddress)) return;
+
+      networks.add(new ExportedNetwork(format(inetAddress,
+        ipv4 ? connections.getIpv4PrefixLength() : connections.getIpv6PrefixLength(), ipv4),
+        !ipv4, expiry, toTimeout(expiry, now)));
+    });
+    return networks;
+  }
+
+  void writeIpset(final @NotNull Writer writer,
+                          final @NotNull List<ExportedNetwork> networks,
+                          final @NotNull String setName) throws IOException {
+    // The new entries are put into a temporary set first, which is then swapped with
+    // the actual set, so the firewall never sees a half-updated set
+    for (int i = 0; i < 2; i++) {
+      final boolean ipv6 = i == 1;
+      final String name = ipv6 ? setName + "6" : setName;
+      final String family = ipv6 ? "inet6" : "inet";
+      writer.write("create " + name + " hash:net family " + family
+        + " timeout 0 maxelem " + MAXIMUM_ELEMENTS + " -exist\n");
+      writer.write("create " + name + "_tmp hash:net family " + family
+        + " timeout 0 maxelem " + MAXIMUM_ELEMENTS + " -exist\n");
+      writer.write("flush " + name + "_tmp\n");
+      for (final ExportedNetwork network : networks) {
+        if (network.ipv6 != ipv6) continue;
+        writer.write("add " + name + "_tmp " + network.network + " timeout " + network.timeout + "\n");
+      }
+      writer.write("swap " + name + "_tmp " + name + "\n");
+      writer.write("destroy " + name + "_tmp\n");
+    }
+  }
+
+  void writeNftables(final @NotNull Writer writer,
+                             final @NotNull List<ExportedNetwork> networks,
+                             final @NotNull String setName) throws IOException {
+    // nftables applies the entire file at once, so there is no need for temporary sets
+    writer.write("table " + NFTABLES_TABLE + " {\n");
+    writer.write("  set " + setName + " { type ipv4_addr; flags interval, timeout; }\n");
+    writer.write("  set " + setName + "6 { type ipv6_addr; flags interval, timeout; }\n");
+    writer.write("}\n");
+    writer.write("flush set " + NFTABLES_TABLE + " " + setName + "\n");
+    writer.write("flush set " + NFTABLES_TABLE + " " + setName + "6\n");
+    for (final ExportedNetwork network : networks) {
+      writer.write("add element " + NFTABLES_TABLE + " " + (network.ipv6 ? setName + "6" : setName)
+        + " { " + network.network + " timeout " + network.timeout + "s }\n");
+    }
+  }
+
+  private void write(final @NotNull String fileName, final @NotNull FileContent content) throws IOException {
+    final File pluginFolder = Sonar.get0().getConfig().getPluginFolder();
+    final File file = new File(pluginFolder, fileName);
+    final File temporaryFile = new File(pluginFolder, fileName + ".tmp");
+    try (final Writer writer = Files.newBufferedWriter(temporaryFile.toPath(), StandardCharsets.UTF_8)) {
+      content.write(writer);
+    }
+    // The firewall command might read the file at any time, so it must never see a half-written file
+    Files.move(temporaryFile.toPath(), file.toPath(),
+      StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private boolean isPrefix(final long @NotNull [] range, final long high, final long low) {
+    final int length = (int) range[2];
+    final long highMask = length >= 64 ? -1L : length == 0 ? 0L : -1L << (64 - length);
+    final long lowMask = length <= 64 ? 0L : length == 128 ? -1L : -1L << (128 - length);
+    return (high & highMask) == range[0] && (low & lowMask) == range[1];
+  }
+
+  private boolean isIpv4(final long high, final long low) {
+    // IPv4 addresses are stored as IPv4-mapped IPv6 addresses (::ffff:a.b.c.d)
+    return high == 0L && low >>> 32 == 0xFFFFL;
+  }
+
+  private long toTimeout(final long expiry, final long now) {
+    // Round up, so entries don't get a timeout of 0, which means that they never expire
+    return Math.min(Math.max((expiry - now + 999L) / 1000L, 1L), MAXIMUM_TIMEOUT);
+  }
+
+  private @NotNull InetAddress toInetAddress(final long high, final long low, final boolean ipv4) {
+    final byte[] address = new byte[ipv4 ? 4 : 16];
+    if (ipv4) {
+      for (int i = 0; i < 4; i++) {
+        address[i] = (byte) (low >>> (24 - i * 8));
+      }
+    } else {
+      for (int i = 0; i < 8; i++) {
+        address[i] = (byte) (high >>> (56 - i * 8));
+        address[i + 8] = (byte) (low >>> (56 - i * 8));
+      }
+    }
+    try {
+      return InetAddress.getByAddress(address);
+    } catch (UnknownHostException exception) {
+      throw new IllegalStateException(exception);
+    }
+  }
+
+  private @NotNull String format(final long high, final long low, final int prefixLength, final boolean ipv4) {
+    return format(toInetAddress(high, low, ipv4), prefixLength, ipv4);
+  }
+
+  private @NotNull String format(final @NotNull InetAddress inetAddress, final int prefixLength, final boolean ipv4) {
+    // Single IP addresses don't need a prefix length
+    if (prefixLength == (ipv4 ? 32 : 128)) {
+      return inetAddress.getHostAddress();
+    }
+    return inetAddress.getHostAddress() + "/" + prefixLength;
+  }
+
+  @FunctionalInterface
+  private interface FileContent {
+    void write(@NotNull Writer writer) throws IOException;
+  }
+
+  @RequiredArgsConstructor
+  static final class ExportedNetwork {
+    private final String network;
+    private final boolean ipv6;
+    private final long expiry;
+    private final long timeout;
+  }
+}
@@ -17,6 +17,8 @@
 
 package xyz.jonesdev.sonar.common.fallback;
 
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelPipeline;
@@ -24,18 +26,23 @@
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import xyz.jonesdev.sonar.api.Sonar;
 import xyz.jonesdev.sonar.common.statistics.GlobalSonarStatistics;
 
-import java.net.InetAddress;
+import java.util.Map;
 import java.util.function.Consumer;
 
+import static xyz.jonesdev.sonar.api.fallback.FallbackPipelines.FALLBACK_STATUS_CAPTURE;
+
 @RequiredArgsConstructor
 public final class FallbackInboundHandler extends ChannelInboundHandlerAdapter {
   private final Consumer<ChannelPipeline> sonarPipelineInjector;
+  // Key of the player's IP address in the address table; computed once during the login,
+  // so we release the same entry even if the address prefix changes in the meantime
   @Setter
   @Getter
-  private InetAddress inetAddress;
+  private long addressKey;
 
   @Override
   public void channelActive(final @NotNull ChannelHandlerContext ctx) throws Exception {
@@ -51,30 +58,32 @@ public void channelActive(final @NotNull ChannelHandlerContext ctx) throws Excep
   public void channelInactive(final @NotNull ChannelHandlerContext ctx) throws Exception {
     // Make sure to let the server handle this
     ctx.fireChannelInactive();
+    handleDisconnect();
+  }
+
+  private void handleDisconnect() {
     // The player can disconnect without sending the login packet first
-    // Account for this by checking if the inetAddress has been set yet
-    if (inetAddress != null) {
-      // Remove the IP address from the queue
-      Sonar.get0().getFallback().getQueue().getPlayers().compute(inetAddress, (ignored, action) -> {
-        // The player is not queued, so we need to remove them from other maps as well
-        if (action == null) {
-          // Remove the IP address from the connected players, if needed
-          Sonar.get0().getFallback().getConnected().compute(inetAddress, (__, v) -> {
-            /*
-             * Remove this account from the online players or decrement the number of accounts
-             * with the same IP, but only if the player is logging into the backend server.
-             * We don't need to decrement the count if the player was just verified since
-             * we've never actually incremented it in the first place ¯\_(ツ)_/¯
-             */
-            if (v == null) {
-              Sonar.get0().getFallback().getOnline().compute(inetAddress,
-                (ignored1, count) -> count == null || count <= 1 ? null : count - 1);
-            }
-            return null;
-          });
-        }
-        return null;
-      });
+    // Account for this by checking if the addressKey has been set yet
+    if (addressKey != 0L) {
+      Sonar.get0().getFallback().getAddressTable().release(addressKey);
+    }
+  }
+
+  /**
+   * Removes all of Sonar's handlers from the pipeline of a player that has logged in,
+   * so Sonar doesn't add any overhead to the rest of the session.
+   * Only the status capture handler is kept, since it removes itself once it has seen the status response.
+   * The bandwidth counter publishes the traffic of the player up to this point when it is removed.
+   */
+  public static void strip(final @NotNull Channel channel, final @Nullable FallbackInboundHandler inboundHandler) {
+    for (final Map.Entry<String, ChannelHandler> entry : channel.pipeline()) {
+      if (entry.getKey().startsWith("sonar") && !entry.getKey().equals(FALLBACK_STATUS_CAPTURE)) {
+        channel.pipeline().remove(entry.getValue());
+      }
+    }
+    // We still need to know when the player disconnects
+    if (inboundHandler != null) {
+      channel.closeFuture().addListener(future -> inboundHandler.handleDisconnect());
     }
   }
 
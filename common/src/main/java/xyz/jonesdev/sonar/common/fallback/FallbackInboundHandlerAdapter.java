@@ -18,13 +18,19 @@
 package xyz.jonesdev.sonar.common.fallback;
 
 import io.netty.channel.*;
+import io.netty.util.AttributeKey;
 import lombok.AllArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import xyz.jonesdev.sonar.api.Sonar;
+import xyz.jonesdev.sonar.api.config.SonarConfiguration;
+import xyz.jonesdev.sonar.api.fallback.FallbackAddressTable;
+import xyz.jonesdev.sonar.api.fallback.FallbackLoginQueue;
+import xyz.jonesdev.sonar.api.fallback.LoadSheddingLevel;
 import xyz.jonesdev.sonar.api.fallback.protocol.ProtocolVersion;
 import xyz.jonesdev.sonar.api.fingerprint.FingerprintingUtil;
+import xyz.jonesdev.sonar.common.fallback.geoip.FallbackGeoIP;
 import xyz.jonesdev.sonar.common.fallback.netty.FallbackTimeoutHandler;
 import xyz.jonesdev.sonar.common.fallback.protocol.FallbackPacket;
 import xyz.jonesdev.sonar.common.fallback.protocol.FallbackPacketEncoder;
@@ -45,16 +51,22 @@
 @AllArgsConstructor
 @RequiredArgsConstructor
 public abstract class FallbackInboundHandlerAdapter extends ChannelInboundHandlerAdapter {
+  // Marks channels that went through Sonar, even if Sonar's handlers have been removed since
+  public static final AttributeKey<Boolean> HANDSHAKE_HANDLED = AttributeKey.valueOf("sonar-handshake-handled");
+
   protected @Nullable String username;
+  private String serverAddress = "";
   protected ProtocolVersion protocolVersion;
   protected RemovalListener channelRemovalListener = RemovalListener.EMPTY;
 
   /**
    * Validates and handles incoming handshake packets
+   *
+   * @return false if the connection has been rejected and the packet should not be passed on
    */
-  protected final void handleHandshake(final @NotNull ChannelHandlerContext ctx,
-                                       final @NotNull String hostname,
-                                       final int protocol) throws Exception {
+  protected final boolean handleHandshake(final @NotNull ChannelHandlerContext ctx,
+                                          final @NotNull String hostname,
+                                          final int protocol) throws Exception {
     // Check if the hostname is invalid
     if (hostname.isEmpty()) {
       throw QuietDecoderException.INSTANCE;
@@ -64,7 +76,25 @@ protected final void handleHandshake(final @NotNull ChannelHandlerContext ctx,
       throw QuietDecoderException.INSTANCE;
     }
     protocolVersion = ProtocolVersion.fromId(protocol);
-    ctx.pipeline().addFirst(FALLBACK_BANDWIDTH, FallbackBandwidthHandler.INSTANCE);
+    ctx.channel().attr(HANDSHAKE_HANDLED).set(true);
+    ctx.pipeline().addFirst(FALLBACK_BANDWIDTH, new FallbackBandwidthHandler());
+
+    // Check if the player is connecting using an unknown server address
+    final String normalizedHostname = FallbackConnectionFilter.normalizeHostname(hostname);
+    serverAddress = normalizedHostname;
+    if (!FallbackConnectionFilter.isAllowedHostname(normalizedHostname)) {
+      GlobalSonarStatistics.countRejectedHostname(normalizedHostname);
+      customDisconnect(ctx.channel(), invalidHostname,
+        protocolVersion.isUnknown() ? ProtocolVersion.MINECRAFT_1_7_2 : protocolVersion);
+      return false;
+    }
+    // Check if the IP address or its network is opening too many connections
+    if (!FallbackConnectionFilter.tryAcquireToken(ctx.channel(), hostname)) {
+      GlobalSonarStatistics.countRejectedHandshake();
+      ProtocolUtil.reject(ctx.channel());
+      return false;
+    }
+    return true;
   }
 
   /**
@@ -94,10 +124,14 @@ protected final void handleLogin(final @NotNull ChannelHandlerContext ctx,
     this.username = username;
 
     final InetAddress inetAddress = socketAddress.getAddress();
-    ctx.pipeline().get(FallbackInboundHandler.class).setInetAddress(inetAddress);
+    final FallbackAddressTable addressTable = Sonar.get0().getFallback().getAddressTable();
+    final long addressKey = addressTable.keyOf(inetAddress);
+    ctx.pipeline().get(FallbackInboundHandler.class).setAddressKey(addressKey);
+    // Keep track of where the logins come from
+    GlobalSonarStatistics.countLoginSource(inetAddress, username, protocolVersion);
 
     // Check if Fallback is already verifying a player with the same IP address
-    if (Sonar.get0().getFallback().getConnected().containsKey(inetAddress)) {
+    if (addressTable.isVerifying(addressKey)) {
       customDisconnect(ctx.channel(), alreadyVerifying, protocolVersion);
       return;
     }
@@ -108,34 +142,55 @@ protected final void handleLogin(final @NotNull ChannelHandlerContext ctx,
       return;
     }
 
-    final String hostAddress = inetAddress.getHostAddress();
     // Check if the player failed the verification too many times
-    final int limit = Sonar.get0().getConfig().getVerification().getBlacklistThreshold();
-    if (limit > 0) {
-      final int score = Sonar.get0().getFallback().getBlacklist().asMap().getOrDefault(hostAddress, 0);
-      if (score >= limit) {
+    if (Sonar.get0().getFallback().isBlacklisted(inetAddress)) {
+      // Don't waste any more resources on blacklisted IP addresses, if configured
+      if (Sonar.get0().getConfig().getConnections().isSkipBlacklistedMessage()) {
+        ProtocolUtil.reject(ctx.channel());
+      } else {
         customDisconnect(ctx.channel(), blacklisted, protocolVersion);
-        return;
       }
+      return;
+    }
+
+    // Check if the network or the country of the player is not allowed to enter the server
+    final long asn = FallbackGeoIP.getAsn(inetAddress);
+    final SonarConfiguration.GeoIP.Policy policy = FallbackGeoIP.getPolicy(asn, inetAddress);
+    if (policy == SonarConfiguration.GeoIP.Policy.DENY) {
+      customDisconnect(ctx.channel(), networkDenied, protocolVersion);
+      return;
     }
 
     // Don't continue the verification process if the verification is disabled
     if (!Sonar.get0().getFallback().shouldVerifyNewPlayers()) {
-      initialLogin(ctx.channel(), inetAddress, initialLoginAction);
+      pacedLogin(ctx.channel(), addressKey, initialLoginAction);
       return;
     }
 
     // Completely skip Geyser connections if configured
     final boolean geyser = GeyserUtil.isGeyserConnection(ctx.channel(), socketAddress);
     if (geyser && !Sonar.get0().getConfig().getVerification().isCheckGeyser()) {
-      initialLogin(ctx.channel(), inetAddress, initialLoginAction);
+      pacedLogin(ctx.channel(), addressKey, initialLoginAction);
+      return;
+    }
+
+    // Completely skip connections from trusted networks or countries
+    if (policy == SonarConfiguration.GeoIP.Policy.SKIP) {
+      pacedLogin(ctx.channel(), addressKey, initialLoginAction);
       return;
     }
 
     // Make sure we actually have to verify the player
-    final String fingerprint = FingerprintingUtil.getFingerprint(username, hostAddress);
+    final String fingerprint = FingerprintingUtil.getFingerprint(username, inetAddress.getHostAddress());
     if (Sonar.get0().getVerifiedPlayerController().getCache().contains(fingerprint)) {
-      initialLogin(ctx.channel(), inetAddress, initialLoginAction);
+      pacedLogin(ctx.channel(), addressKey, initialLoginAction);
+      return;
+    }
+
+    // Don't accept any new unverified players if the server can't keep up
+    if (Sonar.get0().getFallback().getLoadSheddingLevel().isAtLeast(LoadSheddingLevel.REJECT_LOGINS)
+      || Sonar.get0().getFallback().getQueue().isFull()) {
+      customDisconnect(ctx.channel(), serverBusy, protocolVersion);
       return;
     }
 
@@ -145,46 +200,77 @@ protected final void handleLogin(final @NotNull ChannelHandlerContext ctx,
       return;
     }
 
+    // Check if too many players from the same network are trying to join
+    if (!FallbackGeoIP.attemptLogin(asn)) {
+      customDisconnect(ctx.channel(), serverBusy, protocolVersion);
+      return;
+    }
+
     // Remove all other pipelines that could still mess up something
     rewriteProtocol(ctx, channelRemovalListener);
 
-    // Queue the connection for further processing
-    Sonar.get0().getFallback().getQueue().getPlayers().compute(inetAddress, (__, runnable) -> {
+    // Players from the same network take turns with players from other networks;
+    // if we know the ASN of the player, all of its networks share a single turn
+    final long flow = FallbackLoginQueue.flowOf(inetAddress, asn);
+    final FallbackLoginQueue.Reputation reputation = Sonar.get0().getFallback()
+      .getReputation(inetAddress, flow, username);
+    final boolean forceCaptcha = policy == SonarConfiguration.GeoIP.Policy.CAPTCHA;
+
+    // Queue the connection for further processing; once the player has been polled,
+    // the verification handler takes over the channel on the channel's event loop
+    if (!Sonar.get0().getFallback().getQueue().offer(addressKey, flow, reputation, ctx.channel().eventLoop(),
+      () -> new FallbackUserWrapper(ctx, inetAddress, addressKey, protocolVersion, username, fingerprint, geyser, forceCaptcha))) {
       // Check if the player is already queued since we don't want bots to flood the queue
-      if (runnable != null) {
-        customDisconnect(ctx.channel(), alreadyQueued, protocolVersion);
-        // Remove other instances of this IP address from the queue
-        return null;
-      }
+      customDisconnect(ctx.channel(), alreadyQueued, protocolVersion);
+    }
+  }
 
-      // Create an instance for the user and let the verification handler take over the channel
-      return () -> new FallbackUserWrapper(ctx, inetAddress, protocolVersion, username, fingerprint, geyser);
+  /**
+   * Lets the player join once the server address they connected to has enough budget left
+   */
+  private void pacedLogin(final @NotNull Channel channel,
+                          final long addressKey,
+                          final @NotNull Runnable loginPacket) {
+    final boolean accepted = FallbackLoginPacer.offer(serverAddress, channel, () -> {
+      try {
+        initialLogin(channel, addressKey, loginPacket);
+      } catch (Exception exception) {
+        channel.pipeline().fireExceptionCaught(exception);
+      }
     });
+    if (!accepted) {
+      customDisconnect(channel, tooManyJoining, protocolVersion);
+    }
   }
 
   /**
    * Executes the maximum accounts per IP limit check before letting the player join
    */
   protected final void initialLogin(final @NotNull Channel channel,
-                                    final @NotNull InetAddress inetAddress,
+                                    final long addressKey,
                                     final @NotNull Runnable loginPacket) throws Exception {
-    Sonar.get0().getFallback().getOnline().compute(inetAddress, (__, count) -> {
-      final int maxOnlinePerIp = Sonar.get0().getConfig().getMaxOnlinePerIp();
-      // Skip the maximum online per IP check if it's disabled in the configuration
-      if (count != null && maxOnlinePerIp > 0) {
-        // Check if the number of online players using the same IP address as
-        // the connecting player is greater than the configured amount
-        if (count >= maxOnlinePerIp) {
-          customDisconnect(channel, tooManyOnlinePerIP, protocolVersion);
-          return count + 1;
-        }
+    // The inbound handler might be removed by the server while handling the login packet
+    final FallbackInboundHandler inboundHandler = channel.pipeline().get(FallbackInboundHandler.class);
+    // Increment the number of accounts with the same IP
+    final int count = Sonar.get0().getFallback().getAddressTable().incrementOnline(addressKey);
+
+    final int maxOnlinePerIp = Sonar.get0().getConfig().getMaxOnlinePerIp();
+    // Skip the maximum online per IP check if it's disabled in the configuration
+    if (maxOnlinePerIp > 0) {
+      // Check if the number of online players using the same IP address as
+      // the connecting player is greater than the configured amount
+      if (count >= maxOnlinePerIp) {
+        customDisconnect(channel, tooManyOnlinePerIP, protocolVersion);
+        return;
       }
+    }
 
-      // Let the server know about the login packet
-      loginPacket.run();
-      // Increment the number of accounts with the same IP
-      return count == null ? 1 : count + 1;
-    });
+    // Let the server know about the login packet
+    loginPacket.run();
+    // Remove all of Sonar's handlers since the player doesn't have to be verified
+    if (Sonar.get0().getConfig().getConnections().isStripHandlers()) {
+      FallbackInboundHandler.strip(channel, inboundHandler);
+    }
   }
 
   /**
@@ -245,9 +331,9 @@ private static void _customDisconnect(final @NotNull Channel channel,
         newEncoder.updateRegistry(FallbackPacketRegistry.LOGIN);
         channel.pipeline().replace(encoder, FALLBACK_PACKET_ENCODER, newEncoder);
       }
-      ProtocolUtil.closeWith(channel, protocolVersion, packet);
+      ProtocolUtil.rejectWith(channel, protocolVersion, packet);
     } else {
-      channel.close();
+      ProtocolUtil.reject(channel);
     }
   }
 
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.common.fallback;
+
+import io.netty.channel.Channel;
+import lombok.experimental.UtilityClass;
+import org.jetbrains.annotations.NotNull;
+import xyz.jonesdev.sonar.api.Sonar;
+import xyz.jonesdev.sonar.api.config.SonarConfiguration;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lets verified players through at a limited rate per server address, so a wave of players
+ * that join at the same time (e.g. after an attack has ended) doesn't hit the backend servers all at once.
+ * Players that have to wait are kept in a first-in-first-out queue per server address.
+ * Only server addresses that are explicitly allowed get their own queue, since clients can send
+ * any server address they want; all other players share a single queue.
+ */
+@UtilityClass
+public class FallbackLoginPacer {
+  private final Map<String, Lane> LANES = new ConcurrentHashMap<>();
+  // Used for all server addresses that aren't explicitly allowed
+  private final String SHARED_LANE = "";
+  // Number of players that are waiting across all server addresses
+  private final AtomicInteger WAITING = new AtomicInteger();
+
+  /**
+   * Runs the login on the channel's event loop as soon as the server address has enough budget left
+   *
+   * @param serverAddress Normalized server address the player connected to
+   * @param channel       Channel of the player
+   * @param login         Login that should be passed on to the server
+   * @return false if too many players are already waiting, in which case the login is not run
+   * @see SonarConfiguration.Queue#getMaxPacedLogins()
+   */
+  public boolean offer(final @NotNull String serverAddress,
+                       final @NotNull Channel channel,
+                       final @NotNull Runnable login) {
+    final SonarConfiguration.Queue config = Sonar.get0().getConfig().getQueue();
+    final int loginsPerSecond = config.getLoginPacingRate();
+    // A rate of 0 means that the pacing is disabled
+    if (loginsPerSecond <= 0) {
+      login.run();
+      return true;
+    }
+
+    // Wildcards would let clients pick as many server addresses as they want as well
+    final String laneKey = Sonar.get0().getConfig().getConnections().getAllowedHostnames().contains(serverAddress)
+      ? serverAddress : SHARED_LANE;
+    while (true) {
+      final Lane lane = LANES.computeIfAbsent(laneKey, Lane::new);
+      final int result = lane.offer(channel, login, loginsPerSecond, config.getMaxPacedLogins());
+      // The lane might have been removed in the meantime; try again using a new one
+      if (result == Lane.REMOVED) {
+        continue;
+      }
+      if (result == Lane.RUN) {
+        login.run();
+      }
+      return result != Lane.REJECTED;
+    }
+  }
+
+  /**
+   * Passes on as many waiting logins as the budget of each server address allows
+   */
+  public void drain() {
+    if (LANES.isEmpty()) {
+      return;
+    }
+
+    final int loginsPerSecond = Sonar.get0().getConfig().getQueue().getLoginPacingRate();
+    // Let everyone through if the pacing has been disabled in the meantime
+    final int budget = loginsPerSecond <= 0 ? Integer.MAX_VALUE : loginsPerSecond;
+    final List<Waiting> ready = new ArrayList<>();
+
+    for (final Lane lane : LANES.values()) {
+      if (lane.drain(ready, budget)) {
+        LANES.remove(lane.serverAddress, lane);
+      }
+    }
+
+    for (final Waiting waiting : ready) {
+      try {
+        waiting.channel.eventLoop().execute(() -> {
+          // The player might have disconnected while waiting
+          if (waiting.channel.isActive()) {
+            waiting.login.run();
+            // Start reading again once the login has been passed on
+            waiting.channel.config().setAutoRead(true);
+          }
+        });
+      } catch (RejectedExecutionException exception) {
+        // The event loop of the player has been shut down in the meantime
+      }
+    }
+  }
+
+  private static final class Lane {
+    private static final int RUN = 0, WAIT = 1, REJECTED = 2, REMOVED = 3;
+
+    private final String serverAddress;
+    private final Deque<Waiting> waiting = new ArrayDeque<>();
+    private long lastRefill = System.nanoTime();
+    // New lanes start with a full budget
+    private double tokens = Double.MAX_VALUE;
+    private boolean removed;
+
+    private Lane(final @NotNull String serverAddress) {
+      this.serverAddress = serverAddress;
+    }
+
+    private synchronized int offer(final @NotNull Channel channel,
+                                   final @NotNull Runnable login,
+                                   final int loginsPerSecond,
+                                   final int maxWaiting) {
+      if (removed) {
+        return REMOVED;
+      }
+      refill(loginsPerSecond);
+      // Don't let players skip others who are already waiting
+      if (waiting.isEmpty() && tokens >= 1) {
+        tokens--;
+        return RUN;
+      }
+      if (WAITING.incrementAndGet() > maxWaiting) {
+        WAITING.decrementAndGet();
+        return REJECTED;
+      }
+      // Stop reading from the channel, so the server doesn't receive anything before the login
+      channel.config().setAutoRead(false);
+      waiting.addLast(new Waiting(channel, login));
+      return WAIT;
+    }
+
+    /**
+     * @return true if the lane is idle and has been removed
+     */
+    private synchronized boolean drain(final @NotNull List<Waiting> ready, final int loginsPerSecond) {
+      refill(loginsPerSecond);
+      while (tokens >= 1 && !waiting.isEmpty()) {
+        final Waiting next = waiting.pollFirst();
+        WAITING.decrementAndGet();
+        // Don't waste the budget on players who have disconnected while waiting
+        if (next.channel.isActive()) {
+          ready.add(next);
+          tokens--;
+        }
+      }
+      // Lanes with a full budget behave exactly like new lanes, so we can safely throw them away
+      if (waiting.isEmpty() && tokens >= maxTokens(loginsPerSecond)) {
+        removed = true;
+      }
+      return removed;
+    }
+
+    private void refill(final int loginsPerSecond) {
+      final long now = System.nanoTime();
+      tokens = Math.min(tokens + (now - lastRefill) * loginsPerSecond / 1e9, maxTokens(loginsPerSecond));
+      lastRefill = now;
+    }
+
+    private static double maxTokens(final int loginsPerSecond) {
+      // Only allow small bursts, so the logins are spread evenly across every second
+      return Math.max(1, loginsPerSecond / 10D);
+    }
+  }
+
+  private static final class Waiting {
+    private final Channel channel;
+    private final Runnable login;
+
+    private Waiting(final @NotNull Channel channel, final @NotNull Runnable login) {
+      this.channel = channel;
+      this.login = login;
+    }
+  }
+}
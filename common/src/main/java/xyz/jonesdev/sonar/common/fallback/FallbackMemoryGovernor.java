@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.common.fallback;
+
+import io.netty.util.internal.PlatformDependent;
+import lombok.Getter;
+import lombok.experimental.UtilityClass;
+import org.jetbrains.annotations.NotNull;
+import xyz.jonesdev.sonar.api.Sonar;
+import xyz.jonesdev.sonar.api.config.SonarConfiguration;
+import xyz.jonesdev.sonar.api.fallback.LoadSheddingLevel;
+import xyz.jonesdev.sonar.common.statistics.GlobalSonarStatistics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+
+/**
+ * Watches the heap usage after garbage collection and Netty's direct memory usage
+ * and adjusts the {@link LoadSheddingLevel} accordingly, so a flood of connections
+ * can't make the server run out of memory.
+ */
+@UtilityClass
+public class FallbackMemoryGovernor {
+  // The memory usage has to stay below a threshold for 5 seconds before we go down a level
+  private final LoadSheddingHysteresis HYSTERESIS = new LoadSheddingHysteresis(5);
+
+  @Getter
+  private volatile int heapUsage;
+  @Getter
+  private volatile int directMemoryUsage;
+
+  public void hitEverySecond() {
+    heapUsage = getHeapUsageAfterCollection();
+    directMemoryUsage = getDirectMemoryUsage();
+
+    final LoadSheddingLevel current = Sonar.get0().getFallback().getMemoryPressureLevel();
+    final LoadSheddingLevel next = HYSTERESIS.update(current, getTargetLevel(Math.max(heapUsage, directMemoryUsage)));
+    if (next != current) {
+      Sonar.get0().getFallback().setMemoryPressureLevel(next);
+      Sonar.get0().getLogger().info("Memory usage is {}% (heap) and {}% (direct), changing load shedding level from {} to {}",
+        heapUsage, directMemoryUsage, current, next);
+    }
+
+    // Free up as much memory as we can while the verification is paused
+    if (next.isAtLeast(LoadSheddingLevel.PAUSE_VERIFICATION)) {
+      GlobalSonarStatistics.trimCaches();
+      FallbackStatusCache.clear();
+      Sonar.get0().getFallback().cleanUpBlacklist();
+    }
+  }
+
+  private int getHeapUsageAfterCollection() {
+    final long maximum = Runtime.getRuntime().maxMemory();
+    if (maximum <= 0L || maximum == Long.MAX_VALUE) {
+      return 0;
+    }
+    // The usage after the last collection tells us how much memory is actually retained,
+    // whereas the current usage also includes garbage that will be collected soon
+    long used = 0L;
+    for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() != MemoryType.HEAP) continue;
+      final MemoryUsage usage = pool.getCollectionUsage();
+      if (usage != null) {
+        used += usage.getUsed();
+      }
+    }
+    return (int) (used * 100L / maximum);
+  }
+
+  private int getDirectMemoryUsage() {
+    final long maximum = PlatformDependent.maxDirectMemory();
+    final long used = PlatformDependent.usedDirectMemory();
+    // Netty only keeps track of direct memory if it uses its own cleaner
+    if (maximum <= 0L || used < 0L) {
+      return 0;
+    }
+    return (int) (used * 100L / maximum);
+  }
+
+  private @NotNull LoadSheddingLevel getTargetLevel(final int usage) {
+    final SonarConfiguration.LoadShedding config = Sonar.get0().getConfig().getLoadShedding();
+    if (exceeds(usage, config.getRejectLoginsMemory())) {
+      return LoadSheddingLevel.REJECT_LOGINS;
+    }
+    if (exceeds(usage, config.getPauseVerificationMemory())) {
+      return LoadSheddingLevel.PAUSE_VERIFICATION;
+    }
+    if (exceeds(usage, config.getSkipCaptchaMemory())) {
+      return LoadSheddingLevel.SKIP_CAPTCHA;
+    }
+    if (exceeds(usage, config.getShrinkQueueMemory())) {
+      return LoadSheddingLevel.SHRINK_QUEUE;
+    }
+    return LoadSheddingLevel.NONE;
+  }
+
+  private boolean exceeds(final int usage, final int threshold) {
+    return threshold > 0 && usage >= threshold;
+  }
+}
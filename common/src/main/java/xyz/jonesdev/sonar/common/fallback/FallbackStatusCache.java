@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.common.fallback;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.UtilityClass;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import xyz.jonesdev.sonar.api.Sonar;
+import xyz.jonesdev.sonar.api.config.SonarConfiguration;
+import xyz.jonesdev.sonar.api.fallback.InetAddressKeys;
+import xyz.jonesdev.sonar.api.fallback.protocol.ProtocolVersion;
+import xyz.jonesdev.sonar.common.fallback.ratelimit.TokenBucketTable;
+
+import java.net.InetAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the encoded server list responses of the server, so we can answer
+ * status requests without letting the server generate the same response over and over again.
+ * Responses are cached per server address and protocol version, as the server may answer differently.
+ * Each cached response is refreshed by letting a single status request through to the server
+ * once the configured cache time has passed.
+ */
+@UtilityClass
+public class FallbackStatusCache {
+  public final String LEGACY_PING = "legacy";
+  private final int UNKNOWN_PROTOCOL = -1;
+  // Don't let bots fill up the cache using random server addresses
+  private final int MAX_RESPONSES = 256;
+  private final Map<String, CachedResponse> RESPONSES = new ConcurrentHashMap<>();
+  private final TokenBucketTable PINGS = new TokenBucketTable(2048);
+
+  /**
+   * @param inetAddress IP address of the player pinging the server
+   * @return false if the IP address has sent too many server list pings
+   */
+  public boolean tryPing(final @NotNull InetAddress inetAddress) {
+    final SonarConfiguration.Connections.TokenBucket bucket = Sonar.get0().getConfig().getConnections().getPingBucket();
+    return bucket.getCapacity() <= 0 || PINGS.tryConsume(InetAddressKeys.aggregatedKey(inetAddress),
+      bucket.getCapacity(), bucket.getRefillPerSecond());
+  }
+
+  /**
+   * @param hostname Server address sent by the client in the handshake packet
+   * @param protocol Protocol version ID sent by the client in the handshake packet
+   * @return Key of the cached response for the server address and protocol version
+   */
+  public @NotNull String getKey(final @NotNull String hostname, final int protocol) {
+    // Don't let bots fill up the cache using random protocol versions
+    final int cachedProtocol = ProtocolVersion.fromId(protocol).isUnknown() ? UNKNOWN_PROTOCOL : protocol;
+    return cachedProtocol + "/" + FallbackConnectionFilter.normalizeHostname(hostname);
+  }
+
+  public boolean isEnabled() {
+    return Sonar.get0().getConfig().getConnections().getStatusCacheTime() > 0;
+  }
+
+  /**
+   * @param key Key of the cached response
+   * @return Encoded response ready to be written to the channel or null
+   * if the status request should be passed to the server instead
+   */
+  public @Nullable ByteBuf get(final @NotNull String key) {
+    if (!isEnabled()) {
+      return null;
+    }
+
+    final CachedResponse cachedResponse = RESPONSES.get(key);
+    if (cachedResponse == null) {
+      return null;
+    }
+
+    // Let exactly one request through to the server to refresh the response;
+    // everyone else keeps receiving the old response in the meantime
+    final long now = System.currentTimeMillis();
+    final long refreshAt = cachedResponse.refreshAt.get();
+    final int cacheTime = Sonar.get0().getConfig().getConnections().getStatusCacheTime();
+    if (now >= refreshAt && cachedResponse.refreshAt.compareAndSet(refreshAt, now + cacheTime)) {
+      return null;
+    }
+    return Unpooled.wrappedBuffer(cachedResponse.response);
+  }
+
+  public void put(final @NotNull String key, final byte @NotNull [] response) {
+    if (RESPONSES.size() >= MAX_RESPONSES && !RESPONSES.containsKey(key)) {
+      return;
+    }
+    final long refreshAt = System.currentTimeMillis() + Sonar.get0().getConfig().getConnections().getStatusCacheTime();
+    RESPONSES.put(key, new CachedResponse(response, new AtomicLong(refreshAt)));
+  }
+
+  public void clear() {
+    RESPONSES.clear();
+  }
+
+  @RequiredArgsConstructor
+  private static final class CachedResponse {
+    private final byte[] response;
+    private final AtomicLong refreshAt;
+  }
+}
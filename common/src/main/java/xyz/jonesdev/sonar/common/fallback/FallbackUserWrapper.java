@@ -19,6 +19,7 @@
 
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
@@ -30,6 +31,7 @@
 import xyz.jonesdev.sonar.api.fallback.FallbackUser;
 import xyz.jonesdev.sonar.api.fallback.protocol.ProtocolVersion;
 import xyz.jonesdev.sonar.api.timer.SystemTimer;
+import xyz.jonesdev.sonar.common.fallback.netty.FallbackEventLoopGroup;
 import xyz.jonesdev.sonar.common.fallback.netty.FallbackTailExceptionsHandler;
 import xyz.jonesdev.sonar.common.fallback.netty.FallbackVarInt21FrameDecoder;
 import xyz.jonesdev.sonar.common.fallback.netty.FallbackVarIntLengthEncoder;
@@ -52,6 +54,8 @@ public final class FallbackUserWrapper implements FallbackUser {
   @Accessors(fluent = true)
   private final Channel channel;
   private final InetAddress inetAddress;
+  // Key of the player's IP address in the address table (see FallbackAddressTable#keyOf)
+  private final long addressKey;
   private final ProtocolVersion protocolVersion;
   private final String fingerprint;
   private final String username;
@@ -62,16 +66,20 @@ public final class FallbackUserWrapper implements FallbackUser {
 
   public FallbackUserWrapper(final @NotNull ChannelHandlerContext ctx,
                              final @NotNull InetAddress inetAddress,
+                             final long addressKey,
                              final @NotNull ProtocolVersion protocolVersion,
                              final @NotNull String username,
                              final @NotNull String fingerprint,
-                             final boolean geyser) {
+                             final boolean geyser,
+                             final boolean forceCaptcha) {
     this.channel = ctx.channel();
     this.inetAddress = inetAddress;
+    this.addressKey = addressKey;
     this.protocolVersion = protocolVersion;
     this.username = username;
     this.fingerprint = fingerprint;
     this.geyser = geyser;
+    this.forceCaptcha = forceCaptcha;
     this.loginTimer = new SystemTimer();
 
     GlobalSonarStatistics.totalAttemptedVerifications++;
@@ -89,15 +97,16 @@ public FallbackUserWrapper(final @NotNull ChannelHandlerContext ctx,
     // Call the VerifyJoinEvent for external API usage
     Sonar.get0().getEventManager().publish(new UserVerifyJoinEvent(this));
 
-    // Run this in the channel's event loop to avoid issues
-    channel.eventLoop().execute(() -> {
+    // Run this in the channel's event loop to avoid issues;
+    // the channel might be moved to one of Sonar's own event loops first
+    FallbackEventLoopGroup.transfer(channel, () -> {
       // Make sure the channel is still active
       if (!channel.isActive()) {
         return;
       }
 
       // Mark the player as connected by caching them in a map of verifying players
-      Sonar.get0().getFallback().getConnected().compute(inetAddress, (__, v) -> true);
+      Sonar.get0().getFallback().getAddressTable().markVerifying(addressKey);
 
       // Replace normal encoder to allow custom packets
       final FallbackPacketEncoder newEncoder = new FallbackPacketEncoder(protocolVersion);
@@ -109,6 +118,10 @@ public FallbackUserWrapper(final @NotNull ChannelHandlerContext ctx,
       channel.pipeline().addFirst(FALLBACK_FRAME_DECODER, new FallbackVarInt21FrameDecoder());
       channel.pipeline().addLast(FALLBACK_PACKET_DECODER, newDecoder);
 
+      // Consolidate all flushes during a read or an event loop tick to reduce the number of syscalls;
+      // force a flush after 64 consolidated flushes, so we don't buffer too much data
+      channel.pipeline().addFirst(FALLBACK_FLUSH_CONSOLIDATION, new FlushConsolidationHandler(64, true));
+
       // We're sending the LoginSuccess packet now
       newDecoder.updateRegistry(FallbackPacketRegistry.LOGIN);
       newEncoder.updateRegistry(FallbackPacketRegistry.LOGIN);
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.common.fallback;
+
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+import xyz.jonesdev.sonar.api.fallback.LoadSheddingLevel;
+
+/**
+ * Raises the load shedding level straight away, but only lowers it one level at a time
+ * once the target level has been lower for a number of consecutive samples,
+ * so we don't immediately overload the server again.
+ */
+@RequiredArgsConstructor
+public final class LoadSheddingHysteresis {
+  private final int recoverySamples;
+  private int recoveredSamples;
+
+  /**
+   * @return the level that should be used from now on
+   */
+  public @NotNull LoadSheddingLevel update(final @NotNull LoadSheddingLevel current,
+                                           final @NotNull LoadSheddingLevel target) {
+    if (target.compareTo(current) > 0) {
+      recoveredSamples = 0;
+      return target;
+    }
+    if (target.compareTo(current) < 0 && ++recoveredSamples >= recoverySamples) {
+      recoveredSamples = 0;
+      return LoadSheddingLevel.values()[current.ordinal() - 1];
+    }
+    if (target == current) {
+      recoveredSamples = 0;
+    }
+    return current;
+  }
+}
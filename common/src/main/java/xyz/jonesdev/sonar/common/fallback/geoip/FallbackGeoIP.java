@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.common.fallback.geoip;
+
+import lombok.experimental.UtilityClass;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import xyz.jonesdev.sonar.api.Sonar;
+import xyz.jonesdev.sonar.api.config.SonarConfiguration;
+import xyz.jonesdev.sonar.common.fallback.ratelimit.TokenBucketTable;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Looks up the network (ASN) and the country of IP addresses using local MaxMind databases
+ * and decides which policy applies to a connecting player.
+ * Many IP addresses share the same data record, so decoded records are cached by their offset.
+ */
+@UtilityClass
+public class FallbackGeoIP {
+  private final byte[] AUTONOMOUS_SYSTEM_NUMBER = MaxMindDatabaseReader.bytes("autonomous_system_number");
+  private final byte[] COUNTRY = MaxMindDatabaseReader.bytes("country");
+  private final byte[] REGISTERED_COUNTRY = MaxMindDatabaseReader.bytes("registered_country");
+  private final byte[] ISO_CODE = MaxMindDatabaseReader.bytes("iso_code");
+  private final int MAX_CACHED_RECORDS = 4096;
+
+  private final Map<Integer, Long> ASN_CACHE = newCache();
+  private final Map<Integer, String> COUNTRY_CACHE = newCache();
+  private final TokenBucketTable ASN_BUCKETS = new TokenBucketTable(1024);
+
+  private volatile @Nullable MaxMindDatabaseReader asnReader;
+  private volatile @Nullable MaxMindDatabaseReader countryReader;
+
+  private <V> @NotNull Map<Integer, V> newCache() {
+    return new LinkedHashMap<Integer, V>(MAX_CACHED_RECORDS, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<Integer, V> eldest) {
+        return size() > MAX_CACHED_RECORDS;
+      }
+    };
+  }
+
+  /**
+   * (Re-)opens the databases that are configured in the configuration
+   */
+  public void reload() {
+    final SonarConfiguration.GeoIP config = Sonar.get0().getConfig().getGeoIP();
+    asnReader = open(config.getAsnDatabase());
+    countryReader = open(config.getCountryDatabase());
+
+    synchronized (ASN_CACHE) {
+      ASN_CACHE.clear();
+    }
+    synchronized (COUNTRY_CACHE) {
+      COUNTRY_CACHE.clear();
+    }
+  }
+
+  private @Nullable MaxMindDatabaseReader open(final @Nullable String fileName) {
+    if (fileName == null || fileName.isEmpty()) {
+      return null;
+    }
+    final File file = new File(Sonar.get0().getConfig().getPluginFolder(), fileName);
+    if (!file.exists()) {
+      Sonar.get0().getLogger().warn("Could not find GeoIP database {}", file.getName());
+      return null;
+    }
+    try {
+      final MaxMindDatabaseReader reader = MaxMindDatabaseReader.open(file);
+      Sonar.get0().getLogger().info("Loaded GeoIP database {} ({})", file.getName(), reader.getDatabaseType());
+      return reader;
+    } catch (IOException | RuntimeException exception) {
+      Sonar.get0().getLogger().error("Could not load GeoIP database {}: {}", file.getName(), exception);
+      return null;
+    }
+  }
+
+  /**
+   * @return AS number of the network the IP address belongs to, or -1 if it is unknown
+   */
+  public long getAsn(final @NotNull InetAddress inetAddress) {
+    final MaxMindDatabaseReader reader = asnReader;
+    if (reader == null) {
+      return -1L;
+    }
+    final int record = reader.lookup(inetAddress);
+    if (record < 0) {
+      return -1L;
+    }
+    synchronized (ASN_CACHE) {
+      return ASN_CACHE.computeIfAbsent(record,
+        offset -> reader.readInteger(reader.findKey(offset, AUTONOMOUS_SYSTEM_NUMBER)));
+    }
+  }
+
+  /**
+   * @return ISO code of the country the IP address is located in, or null if it is unknown
+   */
+  public @Nullable String getCountry(final @NotNull InetAddress inetAddress) {
+    final MaxMindDatabaseReader reader = countryReader;
+    if (reader == null) {
+      return null;
+    }
+    final int record = reader.lookup(inetAddress);
+    if (record < 0) {
+      return null;
+    }
+    synchronized (COUNTRY_CACHE) {
+      return COUNTRY_CACHE.computeIfAbsent(record, offset -> {
+        final String country = reader.readString(reader.findKey(reader.findKey(offset, COUNTRY), ISO_CODE));
+        // Some IP addresses (e.g. anycast networks) only have a registered country
+        return country != null ? country
+          : reader.readString(reader.findKey(reader.findKey(offset, REGISTERED_COUNTRY), ISO_CODE));
+      });
+    }
+  }
+
+  /**
+   * @param asn         AS number of the IP address (see {@link #getAsn(InetAddress)})
+   * @param inetAddress IP address of the player
+   * @return Policy that applies to the player, or null if there is none;
+   * policies for networks take precedence over policies for countries
+   */
+  public @Nullable SonarConfiguration.GeoIP.Policy getPolicy(final long asn,
+                                                             final @NotNull InetAddress inetAddress) {
+    final SonarConfiguration.GeoIP config = Sonar.get0().getConfig().getGeoIP();
+    if (asn >= 0L) {
+      final SonarConfiguration.GeoIP.Policy policy = config.getAsnPolicies().get(asn);
+      if (policy != null) {
+        return policy;
+      }
+    }
+    // Don't look up the country if there aren't any policies for countries
+    if (config.getCountryPolicies().isEmpty()) {
+      return null;
+    }
+    final String country = getCountry(inetAddress);
+    return country == null ? null : config.getCountryPolicies().get(country);
+  }
+
+  /**
+   * @param asn AS number of the IP address (see {@link #getAsn(InetAddress)})
+   * @return false if too many new players have joined from the same network
+   */
+  public boolean attemptLogin(final long asn) {
+    final int maxLoginsPerAsn = Sonar.get0().getConfig().getGeoIP().getMaxLoginsPerAsn();
+    // A limit of 0 means that the limit is disabled
+    return asn < 0L || maxLoginsPerAsn <= 0 || ASN_BUCKETS.tryConsume(asn, maxLoginsPerAsn, maxLoginsPerAsn);
+  }
+}
@@ -0,0 +1,404 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.common.fallback.geoip;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reader for databases in the MaxMind DB format (.mmdb), e.g. GeoLite2-ASN or GeoLite2-Country.
+ * The file is mapped into memory, and looking up an IPv4 address walks the search tree
+ * without allocating anything. Only the fields that are actually needed are decoded.
+ * Instances are thread-safe, since the buffer is only ever read using absolute positions.
+ * All offsets, pointers and sizes are checked against the bounds of the file,
+ * so a broken database results in missing data instead of exceptions.
+ *
+ * @see <a href="https://maxmind.github.io/MaxMind-DB/">MaxMind DB File Format Specification</a>
+ */
+public final class MaxMindDatabaseReader {
+  private static final byte[] METADATA_MARKER = {
+    (byte) 0xAB, (byte) 0xCD, (byte) 0xEF, 'M', 'a', 'x', 'M', 'i', 'n', 'd', '.', 'c', 'o', 'm'};
+  // The metadata section is at most 128 KiB large
+  private static final int METADATA_MAXIMUM_SIZE = 128 * 1024;
+  private static final int DATA_SECTION_SEPARATOR_SIZE = 16;
+  // Real databases don't nest maps and arrays nearly as deep
+  private static final int MAXIMUM_DEPTH = 32;
+  // Returned instead of a control value if the field is invalid
+  private static final long INVALID = -1L;
+
+  private static final int POINTER = 1, UTF8_STRING = 2, UINT16 = 5, UINT32 = 6,
+    MAP = 7, INT32 = 8, UINT64 = 9, ARRAY = 11, BOOLEAN = 14;
+
+  private final ByteBuffer buffer;
+  private final int nodeCount, recordSize, ipVersion, ipv4StartNode;
+  private final Section dataSection;
+  @Getter
+  private final String databaseType;
+
+  private MaxMindDatabaseReader(final @NotNull ByteBuffer buffer) throws IOException {
+    this.buffer = buffer;
+    final int metadataStart = findMetadata();
+    // Pointers in the metadata are relative to the start of the metadata
+    final Section metadata = new Section(buffer, metadataStart, buffer.capacity());
+    final long nodeCount = metadata.readInteger(metadata.findKey(metadataStart, bytes("node_count")));
+    recordSize = (int) metadata.readInteger(metadata.findKey(metadataStart, bytes("record_size")));
+    ipVersion = (int) metadata.readInteger(metadata.findKey(metadataStart, bytes("ip_version")));
+    final String type = metadata.readString(metadata.findKey(metadataStart, bytes("database_type")));
+    databaseType = type == null ? "unknown" : type;
+
+    // The search tree and the data section must fit in front of the metadata
+    final long dataSectionStart = nodeCount * recordSize / 4 + DATA_SECTION_SEPARATOR_SIZE;
+    final int dataSectionEnd = metadataStart - METADATA_MARKER.length;
+    if (nodeCount <= 0L || dataSectionStart > dataSectionEnd
+      || (recordSize != 24 && recordSize != 28 && recordSize != 32)
+      || (ipVersion != 4 && ipVersion != 6)) {
+      throw new IOException("Invalid metadata");
+    }
+    this.nodeCount = (int) nodeCount;
+    dataSection = new Section(buffer, (int) dataSectionStart, dataSectionEnd);
+
+    // IPv4 addresses are stored as ::a.b.c.d in IPv6 databases
+    int node = 0;
+    if (ipVersion == 6) {
+      for (int i = 0; i < 96 && node >= 0 && node < this.nodeCount; i++) {
+        node = readRecord(node, 0);
+      }
+    }
+    ipv4StartNode = node;
+  }
+
+  public static @NotNull MaxMindDatabaseReader open(final @NotNull File file) throws IOException {
+    try (final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+         final FileChannel channel = randomAccessFile.getChannel()) {
+      // The mapping stays valid after the channel has been closed
+      return new MaxMindDatabaseReader(channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size()));
+    }
+  }
+
+  /**
+   * @return Offset of the data record of the given IP address, or -1 if there is no such record
+   */
+  public int lookup(final @NotNull InetAddress inetAddress) {
+    int node;
+    if (inetAddress instanceof Inet4Address) {
+      // The hash code of an IPv4 address is the address itself
+      final int address = inetAddress.hashCode();
+      node = ipv4StartNode;
+      for (int i = 0; i < 32 && node >= 0 && node < nodeCount; i++) {
+        node = readRecord(node, address >>> (31 - i) & 1);
+      }
+    } else {
+      // IPv4 databases don't contain any IPv6 addresses
+      if (ipVersion != 6) {
+        return -1;
+      }
+      final byte[] address = inetAddress.getAddress();
+      node = 0;
+      for (int i = 0; i < 128 && node >= 0 && node < nodeCount; i++) {
+        node = readRecord(node, address[i >>> 3] >>> (7 - (i & 7)) & 1);
+      }
+    }
+    // A record equal to the node count means that there is no data for this IP address,
+    // and 32-bit records that don't fit in an int can't point into the data section
+    if (node <= nodeCount) {
+      return -1;
+    }
+    final long offset = (long) dataSection.start + node - nodeCount - DATA_SECTION_SEPARATOR_SIZE;
+    return offset < dataSection.end ? (int) offset : -1;
+  }
+
+  /**
+   * @param offset Offset of a map
+   * @param key    UTF-8 bytes of the key
+   * @return Offset of the value of the given key, or -1 if there is no such key
+   */
+  public int findKey(final int offset, final byte @NotNull [] key) {
+    return dataSection.findKey(offset, key);
+  }
+
+  /**
+   * @return Value of the unsigned or signed integer at the given offset, or -1 if there is none
+   */
+  public long readInteger(final int offset) {
+    return dataSection.readInteger(offset);
+  }
+
+  /**
+   * @return Value of the string at the given offset, or null if there is none
+   */
+  public @Nullable String readString(final int offset) {
+    return dataSection.readString(offset);
+  }
+
+  public static byte @NotNull [] bytes(final @NotNull String key) {
+    return key.getBytes(StandardCharsets.UTF_8);
+  }
+
+  // The constructor makes sure that all nodes are inside the file
+  private int readRecord(final int node, final int bit) {
+    switch (recordSize) {
+      case 24: {
+        return readUnsigned(buffer, node * 6 + bit * 3, 3);
+      }
+      case 28: {
+        final int base = node * 7;
+        // The middle byte holds the upper 4 bits of both records
+        final int middle = buffer.get(base + 3) & 0xFF;
+        return bit == 0
+          ? (middle & 0xF0) << 20 | readUnsigned(buffer, base, 3)
+          : (middle & 0x0F) << 24 | readUnsigned(buffer, base + 4, 3);
+      }
+      default: {
+        return readUnsigned(buffer, node * 8 + bit * 4, 4);
+      }
+    }
+  }
+
+  private static int type(final long control) {
+    return (int) (control >>> 40) & 0xFF;
+  }
+
+  private static int headerLength(final long control) {
+    return (int) (control >>> 32) & 0xFF;
+  }
+
+  private static int size(final long control) {
+    return (int) control;
+  }
+
+  private static int readUnsigned(final @NotNull ByteBuffer buffer, final int offset, final int length) {
+    int value = 0;
+    for (int i = 0; i < length; i++) {
+      value = value << 8 | buffer.get(offset + i) & 0xFF;
+    }
+    return value;
+  }
+
+  private int findMetadata() throws IOException {
+    final int limit = Math.max(0, buffer.capacity() - METADATA_MAXIMUM_SIZE);
+    // The marker might appear in the data section as well, so we need the last one
+    for (int offset = buffer.capacity() - METADATA_MARKER.length; offset >= limit; offset--) {
+      int i = 0;
+      while (i < METADATA_MARKER.length && buffer.get(offset + i) == METADATA_MARKER[i]) {
+        i++;
+      }
+      if (i == METADATA_MARKER.length) {
+        return offset + METADATA_MARKER.length;
+      }
+    }
+    throw new IOException("Could not find the metadata");
+  }
+
+  /**
+   * Part of the file (the data section or the metadata) that pointers are relative to.
+   * Fields are never read outside of it, and pointers must point into it as well.
+   */
+  @RequiredArgsConstructor
+  private static final class Section {
+    private final ByteBuffer buffer;
+    private final int start, end;
+
+    int findKey(final int offset, final byte @NotNull [] key) {
+      final int map = resolve(offset);
+      final long control = control(map);
+      if (type(control) != MAP) {
+        return -1;
+      }
+      int position = map + headerLength(control);
+      for (int i = 0; i < size(control) && position >= 0; i++) {
+        final int valueOffset = skip(position, 0);
+        if (valueOffset < 0) {
+          return -1;
+        }
+        if (equals(resolve(position), key)) {
+          return valueOffset;
+        }
+        position = skip(valueOffset, 0);
+      }
+      return -1;
+    }
+
+    long readInteger(final int offset) {
+      final int value = resolve(offset);
+      final long control = control(value);
+      final int type = type(control);
+      if ((type != UINT16 && type != UINT32 && type != INT32 && type != UINT64) || size(control) > 8) {
+        return -1L;
+      }
+      long result = 0L;
+      final int start = value + headerLength(control);
+      for (int i = 0; i < size(control); i++) {
+        result = result << 8 | buffer.get(start + i) & 0xFFL;
+      }
+      return result;
+    }
+
+    @Nullable String readString(final int offset) {
+      final int value = resolve(offset);
+      final long control = control(value);
+      if (type(control) != UTF8_STRING) {
+        return null;
+      }
+      final byte[] bytes = new byte[size(control)];
+      final int start = value + headerLength(control);
+      for (int i = 0; i < bytes.length; i++) {
+        bytes[i] = buffer.get(start + i);
+      }
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Each field starts with a control byte that contains its type and size.
+     * All of them are packed into a single long, so decoding doesn't allocate anything.
+     *
+     * @return Type (bits 40-47), length of the header (bits 32-39) and size (bits 0-31),
+     * or {@link #INVALID} if the field doesn't fit in this section
+     */
+    private long control(final int offset) {
+      if (offset < start || offset >= end) {
+        return INVALID;
+      }
+      final int controlByte = buffer.get(offset) & 0xFF;
+      int type = controlByte >>> 5;
+      if (type == POINTER) {
+        final int headerLength = 2 + (controlByte >>> 3 & 3);
+        return offset + headerLength > end ? INVALID : (long) POINTER << 40 | (long) headerLength << 32;
+      }
+      int position = offset + 1;
+      // Types above 7 are stored in the next byte
+      if (type == 0) {
+        if (position >= end) {
+          return INVALID;
+        }
+        type = 7 + (buffer.get(position++) & 0xFF);
+      }
+      int size = controlByte & 0x1F;
+      if (size >= 29) {
+        final int length = size - 28;
+        if (position + length > end) {
+          return INVALID;
+        }
+        size = (size == 29 ? 29 : size == 30 ? 285 : 65821) + readUnsigned(buffer, position, length);
+        position += length;
+      }
+      // Maps and arrays only count the fields inside them, and the size of a boolean is its value
+      if (type != MAP && type != ARRAY && type != BOOLEAN && (long) position + size > end) {
+        return INVALID;
+      }
+      return (long) type << 40 | (long) (position - offset) << 32 | size & 0xFFFFFFFFL;
+    }
+
+    /**
+     * @return Offset of the field the pointer at the given offset points to,
+     * the given offset if there is no pointer, or -1 if the pointer is invalid
+     */
+    private int resolve(final int offset) {
+      final long control = control(offset);
+      if (control == INVALID) {
+        return -1;
+      }
+      if (type(control) != POINTER) {
+        return offset;
+      }
+      final int controlByte = buffer.get(offset) & 0xFF;
+      final int value = controlByte & 7;
+      final long target;
+      switch (controlByte >>> 3 & 3) {
+        case 0: {
+          target = value << 8 | readUnsigned(buffer, offset + 1, 1);
+          break;
+        }
+        case 1: {
+          target = (value << 16 | readUnsigned(buffer, offset + 1, 2)) + 2048;
+          break;
+        }
+        case 2: {
+          target = (value << 24 | readUnsigned(buffer, offset + 1, 3)) + 526336;
+          break;
+        }
+        default: {
+          target = readUnsigned(buffer, offset + 1, 4) & 0xFFFFFFFFL;
+          break;
+        }
+      }
+      final long position = start + target;
+      // Pointers must not point to other pointers
+      if (position >= end || (buffer.get((int) position) & 0xFF) >>> 5 == POINTER) {
+        return -1;
+      }
+      return (int) position;
+    }
+
+    /**
+     * @return Offset right after the field at the given offset, or -1 if the field is invalid
+     */
+    private int skip(final int offset, final int depth) {
+      final long control = control(offset);
+      if (control == INVALID || depth > MAXIMUM_DEPTH) {
+        return -1;
+      }
+      int position = offset + headerLength(control);
+      switch (type(control)) {
+        case POINTER:
+        case BOOLEAN: {
+          return position;
+        }
+        case MAP: {
+          for (long i = 0; i < size(control) * 2L && position >= 0; i++) {
+            position = skip(position, depth + 1);
+          }
+          return position;
+        }
+        case ARRAY: {
+          for (int i = 0; i < size(control) && position >= 0; i++) {
+            position = skip(position, depth + 1);
+          }
+          return position;
+        }
+        default: {
+          return position + size(control);
+        }
+      }
+    }
+
+    private boolean equals(final int offset, final byte @NotNull [] key) {
+      final long control = control(offset);
+      if (type(control) != UTF8_STRING || size(control) != key.length) {
+        return false;
+      }
+      final int start = offset + headerLength(control);
+      for (int i = 0; i < key.length; i++) {
+        if (buffer.get(start + i) != key[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
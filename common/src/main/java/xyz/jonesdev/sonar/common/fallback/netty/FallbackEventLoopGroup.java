@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.common.fallback.netty;
+
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutor;
+import lombok.experimental.UtilityClass;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import xyz.jonesdev.sonar.api.Sonar;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Event loops owned by Sonar, which are used for handling players during the verification,
+ * so bot attacks can't slow down the event loops of players that are already on the server.
+ */
+@UtilityClass
+public class FallbackEventLoopGroup {
+  // Channels can only be registered to event loops of the same transport,
+  // so we create one group per type of event loop group used by the server
+  private final Map<Class<?>, Optional<EventLoopGroup>> GROUPS = new ConcurrentHashMap<>();
+  private final ThreadFactory THREAD_FACTORY = new DefaultThreadFactory("sonar-verification", true);
+
+  /**
+   * @param channel Channel of the player that is about to be verified
+   * @return Sonar's event loop group for the transport of the channel or null
+   * if the channel should stay on the server's event loop
+   */
+  public @Nullable EventLoopGroup get(final @NotNull Channel channel) {
+    final int threads = Sonar.get0().getConfig().getVerification().getThreads();
+    if (threads <= 0) {
+      return null;
+    }
+    final EventLoopGroup parent = channel.eventLoop().parent();
+    if (parent == null) {
+      return null;
+    }
+    return GROUPS.computeIfAbsent(parent.getClass(), type -> create(type, threads)).orElse(null);
+  }
+
+  private @NotNull Optional<EventLoopGroup> create(final @NotNull Class<?> type, final int threads) {
+    // NioEventLoopGroup, EpollEventLoopGroup and KQueueEventLoopGroup all have this constructor;
+    // we don't reference them directly, since not every server ships every native transport
+    try {
+      final EventLoopGroup group = (EventLoopGroup) type.getConstructor(int.class, ThreadFactory.class)
+        .newInstance(threads, THREAD_FACTORY);
+      for (final EventExecutor executor : group) {
+        FallbackLagMonitor.track((EventLoop) executor);
+      }
+      return Optional.of(group);
+    } catch (Throwable throwable) {
+      Sonar.get0().getLogger().warn("Could not create verification threads for {}: {}", type.getSimpleName(), throwable);
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Moves the channel to one of Sonar's event loops, if configured, and runs the given task
+   * on the event loop the channel ends up being registered to.
+   */
+  public void transfer(final @NotNull Channel channel, final @NotNull Runnable task) {
+    final EventLoopGroup group = get(channel);
+    if (group == null) {
+      // Avoid scheduling another task if we're already running on the channel's event loop
+      if (channel.eventLoop().inEventLoop()) {
+        task.run();
+      } else {
+        channel.eventLoop().execute(task);
+      }
+      return;
+    }
+
+    channel.eventLoop().execute(() -> {
+      // Make sure the channel is still active
+      if (!channel.isActive()) {
+        return;
+      }
+
+      channel.deregister().addListener(deregisterFuture -> {
+        if (!deregisterFuture.isSuccess()) {
+          channel.close();
+          return;
+        }
+        // Reading automatically continues once the channel has been registered again
+        group.register(channel).addListener(registerFuture -> {
+          if (registerFuture.isSuccess()) {
+            task.run();
+          } else {
+            channel.unsafe().closeForcibly();
+          }
+        });
+      });
+    });
+  }
+
+  public void shutdown() {
+    for (final Optional<EventLoopGroup> group : GROUPS.values()) {
+      group.ifPresent(EventLoopGroup::shutdownGracefully);
+    }
+    GROUPS.clear();
+  }
+}
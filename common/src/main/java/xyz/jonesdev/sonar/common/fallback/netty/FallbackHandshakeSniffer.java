@@ -0,0 +1,427 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.common.fallback.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import org.jetbrains.annotations.NotNull;
+import xyz.jonesdev.sonar.api.Sonar;
+import xyz.jonesdev.sonar.api.config.SonarConfiguration;
+import xyz.jonesdev.sonar.api.fallback.FallbackAddressTable;
+import xyz.jonesdev.sonar.api.fallback.protocol.ProtocolVersion;
+import xyz.jonesdev.sonar.api.fingerprint.FingerprintingUtil;
+import xyz.jonesdev.sonar.common.fallback.FallbackConnectionFilter;
+import xyz.jonesdev.sonar.common.fallback.FallbackStatusCache;
+import xyz.jonesdev.sonar.common.fallback.protocol.FallbackPacket;
+import xyz.jonesdev.sonar.common.fallback.protocol.FallbackPacketRegistry;
+import xyz.jonesdev.sonar.common.fallback.protocol.packets.handshake.HandshakePacket;
+import xyz.jonesdev.sonar.common.fallback.protocol.packets.login.LoginStartPacket;
+import xyz.jonesdev.sonar.common.fallback.protocol.packets.play.DisconnectPacket;
+import xyz.jonesdev.sonar.common.statistics.GlobalSonarStatistics;
+import xyz.jonesdev.sonar.common.util.ProtocolUtil;
+import xyz.jonesdev.sonar.common.util.exception.QuietDecoderException;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+import static xyz.jonesdev.sonar.api.fallback.FallbackPipelines.FALLBACK_STATUS_CAPTURE;
+import static xyz.jonesdev.sonar.common.fallback.protocol.FallbackPreparer.*;
+
+/**
+ * Reads the handshake straight from the raw bytes, before the server decodes anything.
+ * Server list pings are answered using the {@link FallbackStatusCache} if possible.
+ * If configured, the login start packet is read as well, so unwanted logins can be rejected
+ * before the server decodes them. All other connections are passed to the server
+ * with the bytes we've already received.
+ */
+public final class FallbackHandshakeSniffer extends ChannelInboundHandlerAdapter {
+  // The handshake is usually very small, but IP forwarding can add a lot of data to the hostname
+  private static final int MAX_BUFFERED_BYTES = 1 << 15;
+  private static final int LEGACY_PING = 0xFE;
+  private static final long INCOMPLETE = -1L;
+  private static final long INVALID = -2L;
+
+  private ByteBuf buffered;
+  private ByteBuf statusResponse;
+  private boolean answeringStatus;
+  private HandshakePacket handshake;
+  private int handshakeLength;
+
+  /**
+   * @return true if the sniffer can be used for the given pipeline
+   */
+  public static boolean shouldInject(final @NotNull ChannelPipeline pipeline) {
+    // We need to know the IP address of the player
+    if (!(pipeline.channel().remoteAddress() instanceof InetSocketAddress)) {
+      return false;
+    }
+    final SonarConfiguration.Connections config = Sonar.get0().getConfig().getConnections();
+    return config.isSniffLogins() || FallbackStatusCache.isEnabled() || config.getPingBucket().getCapacity() > 0;
+  }
+
+  @Override
+  public void channelRead(final @NotNull ChannelHandlerContext ctx, final Object msg) throws Exception {
+    if (!(msg instanceof ByteBuf)) {
+      ctx.fireChannelRead(msg);
+      return;
+    }
+
+    final ByteBuf byteBuf = (ByteBuf) msg;
+    buffered = buffered == null ? byteBuf : ByteToMessageDecoder.MERGE_CUMULATOR.cumulate(ctx.alloc(), buffered, byteBuf);
+    if (!buffered.isReadable()) {
+      return;
+    }
+
+    if (answeringStatus) {
+      answerStatus(ctx);
+    } else if (handshake != null) {
+      sniffLogin(ctx);
+    } else {
+      sniffHandshake(ctx);
+    }
+  }
+
+  private void sniffHandshake(final @NotNull ChannelHandlerContext ctx) {
+    final int readerIndex = buffered.readerIndex();
+
+    // Legacy server list ping (1.6 and below)
+    if (buffered.getUnsignedByte(readerIndex) == LEGACY_PING) {
+      // 1.4-1.6 clients send 0xFE 0x01; older clients expect a different response
+      if (buffered.readableBytes() >= 2 && buffered.getByte(readerIndex + 1) == 0x01) {
+        handleStatus(ctx, FallbackStatusCache.LEGACY_PING, 0, false);
+      } else {
+        passThrough(ctx);
+      }
+      return;
+    }
+
+    final long frameLength = peekVarInt(buffered, readerIndex, 3);
+    if (frameLength == INCOMPLETE) {
+      return;
+    }
+    final int length = (int) frameLength;
+    final int lengthBytes = (int) (frameLength >>> 32);
+    if (frameLength == INVALID || length <= 0 || length > MAX_BUFFERED_BYTES) {
+      passThrough(ctx);
+      return;
+    }
+    // Wait until we've received the entire handshake packet
+    if (buffered.readableBytes() < lengthBytes + length) {
+      return;
+    }
+
+    final HandshakePacket packet = new HandshakePacket();
+    try {
+      final ByteBuf frame = buffered.slice(readerIndex + lengthBytes, length);
+      // The first packet always has to be a handshake packet
+      if (ProtocolUtil.readVarInt(frame) != 0x00) {
+        throw QuietDecoderException.INSTANCE;
+      }
+      packet.decode(frame, null);
+    } catch (Throwable throwable) {
+      // Let the server deal with invalid packets
+      passThrough(ctx);
+      return;
+    }
+
+    if (packet.getIntent() == HandshakePacket.STATUS) {
+      final String key = FallbackStatusCache.getKey(packet.getHostname(), packet.getProtocolVersionId());
+      handleStatus(ctx, key, lengthBytes + length, FallbackConnectionFilter.hasForwardedAddress(packet.getHostname()));
+      return;
+    }
+
+    if (Sonar.get0().getConfig().getConnections().isSniffLogins()
+      && (packet.getIntent() == HandshakePacket.LOGIN || packet.getIntent() == HandshakePacket.TRANSFER)) {
+      handshake = packet;
+      handshakeLength = lengthBytes + length;
+      if (!rejectHandshake(ctx)) {
+        // The login start packet is usually sent together with the handshake
+        sniffLogin(ctx);
+      }
+      return;
+    }
+    passThrough(ctx);
+  }
+
+  /**
+   * Performs all checks that only depend on the IP address and the handshake
+   *
+   * @return true if the connection has been rejected
+   */
+  private boolean rejectHandshake(final @NotNull ChannelHandlerContext ctx) {
+    final InetAddress inetAddress = ((InetSocketAddress) ctx.channel().remoteAddress()).getAddress();
+    final ProtocolVersion protocolVersion = ProtocolVersion.fromId(handshake.getProtocolVersionId());
+
+    // Check if the player is connecting using an unknown server address
+    final String normalizedHostname = FallbackConnectionFilter.normalizeHostname(handshake.getHostname());
+    if (!FallbackConnectionFilter.isAllowedHostname(normalizedHostname)) {
+      GlobalSonarStatistics.countRejectedHostname(normalizedHostname);
+      disconnect(ctx, invalidHostname, protocolVersion.isUnknown() ? ProtocolVersion.MINECRAFT_1_7_2 : protocolVersion);
+      return true;
+    }
+    // Sonar does not support snapshots or Minecraft versions older than 1.7.2
+    if (protocolVersion.isUnknown()) {
+      GlobalSonarStatistics.countRejectedHandshake();
+      disconnect(ctx, unsupportedVersion, ProtocolVersion.MINECRAFT_1_7_2);
+      return true;
+    }
+    // Check if the protocol ID of the player is not allowed to enter the server
+    if (Sonar.get0().getConfig().getVerification().getBlacklistedProtocols().contains(protocolVersion.getProtocol())) {
+      GlobalSonarStatistics.countRejectedHandshake();
+      disconnect(ctx, protocolBlacklisted, protocolVersion);
+      return true;
+    }
+    // The server will use a different IP address than the one of the connection,
+    // so we have to leave all checks that depend on the IP address to the inbound handler
+    if (FallbackConnectionFilter.hasForwardedAddress(handshake.getHostname())) {
+      return false;
+    }
+    // Check if the IP address or its network is opening too many connections
+    if (!FallbackConnectionFilter.tryAcquireToken(ctx.channel(), handshake.getHostname())) {
+      GlobalSonarStatistics.countRejectedHandshake();
+      reject(ctx);
+      return true;
+    }
+    // Check if the player failed the verification too many times;
+    // handleLogin counts these rejections as logins, so we have to do the same
+    if (Sonar.get0().getFallback().isBlacklisted(inetAddress)) {
+      GlobalSonarStatistics.countLogin();
+      if (Sonar.get0().getConfig().getConnections().isSkipBlacklistedMessage()) {
+        reject(ctx);
+      } else {
+        disconnect(ctx, blacklisted, protocolVersion);
+      }
+      return true;
+    }
+    // Check if Fallback is already verifying a player with the same IP address
+    final FallbackAddressTable addressTable = Sonar.get0().getFallback().getAddressTable();
+    if (addressTable.isVerifying(addressTable.keyOf(inetAddress))) {
+      GlobalSonarStatistics.countLogin();
+      disconnect(ctx, alreadyVerifying, protocolVersion);
+      return true;
+    }
+    return false;
+  }
+
+  private void sniffLogin(final @NotNull ChannelHandlerContext ctx) {
+    final int loginStartIndex = buffered.readerIndex() + handshakeLength;
+    final long frameLength = peekVarInt(buffered, loginStartIndex, 3);
+    if (frameLength == INCOMPLETE) {
+      return;
+    }
+    final int length = (int) frameLength;
+    final int lengthBytes = (int) (frameLength >>> 32);
+    if (frameLength == INVALID || length <= 0 || handshakeLength + lengthBytes + length > MAX_BUFFERED_BYTES) {
+      passThrough(ctx);
+      return;
+    }
+    // Wait until we've received the entire login start packet
+    if (buffered.writerIndex() < loginStartIndex + lengthBytes + length) {
+      return;
+    }
+
+    final ProtocolVersion protocolVersion = ProtocolVersion.fromId(handshake.getProtocolVersionId());
+    final LoginStartPacket loginStart = new LoginStartPacket();
+    try {
+      final ByteBuf frame = buffered.slice(loginStartIndex + lengthBytes, length);
+      if (ProtocolUtil.readVarInt(frame) != 0x00) {
+        throw QuietDecoderException.INSTANCE;
+      }
+      loginStart.decode(frame, protocolVersion);
+      if (frame.isReadable()) {
+        throw QuietDecoderException.INSTANCE;
+      }
+    } catch (Throwable throwable) {
+      // The server would not accept this packet either
+      GlobalSonarStatistics.countLogin();
+      reject(ctx);
+      return;
+    }
+
+    // Check if the IP address is currently being rate-limited; verified players are never rate-limited.
+    // We can't tell the real IP address of players joining through Floodgate or other forwarding
+    // solutions that append data to the hostname, so we leave those connections to the server.
+    final InetAddress inetAddress = ((InetSocketAddress) ctx.channel().remoteAddress()).getAddress();
+    if (!FallbackConnectionFilter.hasForwardedAddress(handshake.getHostname())
+      && Sonar.get0().getFallback().shouldVerifyNewPlayers()
+      && Sonar.get0().getFallback().getRatelimiter().isRatelimited(inetAddress)) {
+      final String fingerprint = FingerprintingUtil.getFingerprint(loginStart.getUsername(), inetAddress.getHostAddress());
+      if (!Sonar.get0().getVerifiedPlayerController().getCache().contains(fingerprint)) {
+        // These logins never reach the inbound handler, but they are just as interesting
+        GlobalSonarStatistics.countLogin();
+        GlobalSonarStatistics.countLoginSource(inetAddress, loginStart.getUsername(), protocolVersion);
+        disconnect(ctx, reconnectedTooFast, protocolVersion);
+        return;
+      }
+    }
+
+    // Let the server (and Sonar's inbound handler) process the handshake and login
+    passThrough(ctx);
+  }
+
+  private void disconnect(final @NotNull ChannelHandlerContext ctx,
+                          final @NotNull FallbackPacket packet,
+                          final @NotNull ProtocolVersion protocolVersion) {
+    buffered.release();
+    buffered = null;
+
+    // There are no encoders in front of us, so we have to encode the packet ourselves
+    final ByteBuf body = ctx.alloc().buffer();
+    final ByteBuf frame;
+    try {
+      ProtocolUtil.writeVarInt(body, FallbackPacketRegistry.LOGIN.getProtocolRegistry(
+        FallbackPacketRegistry.Direction.CLIENTBOUND, protocolVersion).getPacketId(DisconnectPacket.class));
+      packet.encode(body, protocolVersion);
+      frame = ctx.alloc().buffer(ProtocolUtil.varIntBytes(body.readableBytes()) + body.readableBytes());
+      ProtocolUtil.writeVarInt(frame, body.readableBytes());
+      frame.writeBytes(body);
+    } catch (Throwable throwable) {
+      ProtocolUtil.reject(ctx.channel());
+      return;
+    } finally {
+      body.release();
+    }
+
+    if (Sonar.get0().getConfig().getConnections().isFastTeardown()) {
+      ProtocolUtil.resetOnClose(ctx.channel());
+    }
+    ctx.writeAndFlush(frame).addListener(ChannelFutureListener.CLOSE);
+  }
+
+  private void reject(final @NotNull ChannelHandlerContext ctx) {
+    buffered.release();
+    buffered = null;
+    ProtocolUtil.reject(ctx.channel());
+  }
+
+  private void handleStatus(final @NotNull ChannelHandlerContext ctx, final @NotNull String key,
+                            final int handshakeLength,
+                            final boolean forwarded) {
+    final InetSocketAddress socketAddress = (InetSocketAddress) ctx.channel().remoteAddress();
+    // Check if the IP address is sending too many server list pings; the IP address of
+    // forwarded connections belongs to the proxy, so we can't limit those connections here
+    if (!forwarded && !FallbackStatusCache.tryPing(socketAddress.getAddress())) {
+      GlobalSonarStatistics.countRejectedHandshake();
+      reject(ctx);
+      return;
+    }
+
+    final ByteBuf response = FallbackStatusCache.get(key);
+    if (response == null) {
+      // Let the server respond and remember the response for the next ping
+      if (FallbackStatusCache.isEnabled()) {
+        ctx.pipeline().addFirst(FALLBACK_STATUS_CAPTURE, new FallbackStatusCaptureHandler(key));
+      }
+      passThrough(ctx);
+      return;
+    }
+
+    // Legacy clients don't send anything else, so we can close the connection right away
+    if (key.equals(FallbackStatusCache.LEGACY_PING)) {
+      buffered.release();
+      buffered = null;
+      ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+      return;
+    }
+
+    buffered.skipBytes(handshakeLength);
+    statusResponse = response;
+    answeringStatus = true;
+    answerStatus(ctx);
+  }
+
+  private void answerStatus(final @NotNull ChannelHandlerContext ctx) {
+    while (buffered.isReadable()) {
+      final int readerIndex = buffered.readerIndex();
+      final long frameLength = peekVarInt(buffered, readerIndex, 3);
+      if (frameLength == INCOMPLETE) {
+        return;
+      }
+      final int length = (int) frameLength;
+      final int lengthBytes = (int) (frameLength >>> 32);
+      // Status requests and pings are tiny, so anything else is not a valid packet
+      if (frameLength == INVALID || length <= 0 || length > 9) {
+        ProtocolUtil.reject(ctx.channel());
+        return;
+      }
+      if (buffered.readableBytes() < lengthBytes + length) {
+        return;
+      }
+
+      final int packetId = buffered.getByte(readerIndex + lengthBytes);
+      if (packetId == 0x00 && statusResponse != null) {
+        // Status request
+        buffered.skipBytes(lengthBytes + length);
+        ctx.writeAndFlush(statusResponse);
+        statusResponse = null;
+      } else if (packetId == 0x01 && statusResponse == null) {
+        // Ping; the response is exactly the same packet
+        ctx.writeAndFlush(buffered.readRetainedSlice(lengthBytes + length)).addListener(ChannelFutureListener.CLOSE);
+        return;
+      } else {
+        ProtocolUtil.reject(ctx.channel());
+        return;
+      }
+    }
+  }
+
+  /**
+   * Hands all bytes we've received so far to the server and removes this handler
+   */
+  private void passThrough(final @NotNull ChannelHandlerContext ctx) {
+    final ByteBuf byteBuf = buffered;
+    buffered = null;
+    ctx.pipeline().remove(this);
+    ctx.fireChannelRead(byteBuf);
+  }
+
+  @Override
+  public void handlerRemoved(final @NotNull ChannelHandlerContext ctx) throws Exception {
+    if (buffered != null) {
+      buffered.release();
+      buffered = null;
+    }
+    if (statusResponse != null) {
+      statusResponse.release();
+      statusResponse = null;
+    }
+  }
+
+  /**
+   * @return VarInt at the given index and the number of bytes it takes up, packed into a long;
+   * {@link #INCOMPLETE} if there are not enough bytes or {@link #INVALID} if the VarInt is too long
+   */
+  private static long peekVarInt(final @NotNull ByteBuf byteBuf, final int index, final int maxBytes) {
+    int value = 0;
+    for (int i = 0; i < maxBytes; i++) {
+      if (index + i >= byteBuf.writerIndex()) {
+        return INCOMPLETE;
+      }
+      final byte b = byteBuf.getByte(index + i);
+      value |= (b & 0x7F) << i * 7;
+      if ((b & 0x80) == 0) {
+        return (long) (i + 1) << 32 | value & 0xFFFFFFFFL;
+      }
+    }
+    return INVALID;
+  }
+}
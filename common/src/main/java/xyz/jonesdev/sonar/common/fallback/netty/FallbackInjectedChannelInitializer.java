@@ -24,6 +24,7 @@
 import org.jetbrains.annotations.NotNull;
 import xyz.jonesdev.sonar.api.Sonar;
 import xyz.jonesdev.sonar.api.SonarPlatform;
+import xyz.jonesdev.sonar.common.fallback.FallbackConnectionFilter;
 import xyz.jonesdev.sonar.common.fallback.FallbackInboundHandler;
 import xyz.jonesdev.sonar.common.util.FakeChannelUtil;
 import xyz.jonesdev.sonar.common.util.exception.ReflectiveOperationException;
@@ -33,6 +34,7 @@
 import java.lang.invoke.MethodType;
 import java.util.function.Consumer;
 
+import static xyz.jonesdev.sonar.api.fallback.FallbackPipelines.FALLBACK_HANDSHAKE_SNIFFER;
 import static xyz.jonesdev.sonar.api.fallback.FallbackPipelines.FALLBACK_INBOUND_HANDLER;
 
 @RequiredArgsConstructor
@@ -53,6 +55,11 @@ public final class FallbackInjectedChannelInitializer extends ChannelInitializer
 
   @Override
   protected void initChannel(final Channel channel) throws Exception {
+    // Close unwanted connections before the server builds its pipeline
+    if (!FakeChannelUtil.isFakeChannel(channel) && !FallbackConnectionFilter.accept(channel)) {
+      return;
+    }
+
     // Invoke the original method
     try {
       INIT_CHANNEL_METHOD.invokeExact(originalChannelInitializer, channel);
@@ -67,6 +74,7 @@ public static void inject(final @NotNull Channel channel, final Consumer<Channel
     // Inject Sonar's channel handler into the pipeline;
     // Also make sure the player is not a fake player to avoid compatibility issues
     if (channel.isActive() && !FakeChannelUtil.isFakeChannel(channel)) {
+      FallbackLagMonitor.track(channel.eventLoop());
       final FallbackInboundHandler inboundHandler = new FallbackInboundHandler(sonarPipelineInjector);
       // We need to be careful on Bukkit, as the encoder can be different
       if (Sonar.get0().getPlatform() == SonarPlatform.BUKKIT) {
@@ -75,6 +83,12 @@ public static void inject(final @NotNull Channel channel, final Consumer<Channel
       } else {
         channel.pipeline().addFirst(FALLBACK_INBOUND_HANDLER, inboundHandler);
       }
+      // Read the handshake before the server decodes it, if possible;
+      // we can't read it before the proxy protocol header has been decoded
+      if (!FallbackConnectionFilter.markProxyProtocol(channel.pipeline())
+        && FallbackHandshakeSniffer.shouldInject(channel.pipeline())) {
+        channel.pipeline().addFirst(FALLBACK_HANDSHAKE_SNIFFER, new FallbackHandshakeSniffer());
+      }
     }
   }
 }
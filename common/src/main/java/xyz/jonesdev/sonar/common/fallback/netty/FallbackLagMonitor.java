@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.common.fallback.netty;
+
+import io.netty.channel.EventLoop;
+import lombok.Getter;
+import lombok.experimental.UtilityClass;
+import org.jetbrains.annotations.NotNull;
+import xyz.jonesdev.sonar.api.Sonar;
+import xyz.jonesdev.sonar.api.config.SonarConfiguration;
+import xyz.jonesdev.sonar.api.fallback.LoadSheddingLevel;
+import xyz.jonesdev.sonar.common.fallback.LoadSheddingHysteresis;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long tasks have to wait before an event loop gets to run them
+ * and adjusts the {@link LoadSheddingLevel} accordingly.
+ */
+@UtilityClass
+public class FallbackLagMonitor {
+  private final Map<EventLoop, Probe> PROBES = new ConcurrentHashMap<>();
+  // The delay has to stay below a threshold for 2 seconds before we go down a level
+  private final LoadSheddingHysteresis HYSTERESIS = new LoadSheddingHysteresis(8);
+
+  @Getter
+  private volatile long eventLoopDelay;
+
+  public void track(final @NotNull EventLoop eventLoop) {
+    // Avoid the locking in computeIfAbsent, since this is called for every connection
+    if (!PROBES.containsKey(eventLoop)) {
+      PROBES.putIfAbsent(eventLoop, new Probe());
+    }
+  }
+
+  /**
+   * Sends a probe to every tracked event loop and updates the load shedding level
+   * using the highest delay measured by the previous probes
+   */
+  public void sample() {
+    final long now = System.nanoTime();
+    long maximumDelay = 0L;
+
+    for (final var iterator = PROBES.entrySet().iterator(); iterator.hasNext(); ) {
+      final var entry = iterator.next();
+      final EventLoop eventLoop = entry.getKey();
+      if (eventLoop.isShuttingDown()) {
+        iterator.remove();
+        continue;
+      }
+
+      final Probe probe = entry.getValue();
+      final long submittedAt = probe.submittedAt;
+      if (submittedAt != 0L) {
+        // The previous probe has not run yet, so the event loop is at least this far behind
+        maximumDelay = Math.max(maximumDelay, now - submittedAt);
+        continue;
+      }
+
+      maximumDelay = Math.max(maximumDelay, probe.delay);
+      probe.submittedAt = now;
+      try {
+        eventLoop.execute(() -> {
+          probe.delay = System.nanoTime() - now;
+          probe.submittedAt = 0L;
+        });
+      } catch (RejectedExecutionException exception) {
+        // The event loop has been shut down in the meantime
+        iterator.remove();
+      }
+    }
+
+    eventLoopDelay = TimeUnit.NANOSECONDS.toMillis(maximumDelay);
+    final LoadSheddingLevel current = Sonar.get0().getFallback().getEventLoopLagLevel();
+    final LoadSheddingLevel next = HYSTERESIS.update(current, getTargetLevel(eventLoopDelay));
+    if (next != current) {
+      Sonar.get0().getFallback().setEventLoopLagLevel(next);
+      Sonar.get0().getLogger().info("Event loop delay is {}ms, changing load shedding level from {} to {}",
+        eventLoopDelay, current, next);
+    }
+  }
+
+  private @NotNull LoadSheddingLevel getTargetLevel(final long delay) {
+    final SonarConfiguration.LoadShedding config = Sonar.get0().getConfig().getLoadShedding();
+    if (exceeds(delay, config.getRejectLoginsLag())) {
+      return LoadSheddingLevel.REJECT_LOGINS;
+    }
+    if (exceeds(delay, config.getPauseVerificationLag())) {
+      return LoadSheddingLevel.PAUSE_VERIFICATION;
+    }
+    if (exceeds(delay, config.getSkipCaptchaLag())) {
+      return LoadSheddingLevel.SKIP_CAPTCHA;
+    }
+    if (exceeds(delay, config.getShrinkQueueLag())) {
+      return LoadSheddingLevel.SHRINK_QUEUE;
+    }
+    return LoadSheddingLevel.NONE;
+  }
+
+  private boolean exceeds(final long delay, final int threshold) {
+    return threshold > 0 && delay >= threshold;
+  }
+
+  private static final class Probe {
+    private volatile long submittedAt;
+    private volatile long delay;
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.common.fallback.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+import xyz.jonesdev.sonar.common.fallback.FallbackStatusCache;
+
+/**
+ * Records the encoded server list response written by the server,
+ * so it can be stored in the {@link FallbackStatusCache}.
+ * Everything written until the first flush is considered to be the response.
+ */
+@RequiredArgsConstructor
+public final class FallbackStatusCaptureHandler extends ChannelOutboundHandlerAdapter {
+  // Responses can include a server icon, but they should never be larger than this
+  private static final int MAX_RESPONSE_SIZE = 1 << 18;
+
+  private final String key;
+  private ByteBuf captured;
+  private boolean tooLarge;
+
+  @Override
+  public void write(final @NotNull ChannelHandlerContext ctx,
+                    final Object msg,
+                    final ChannelPromise promise) throws Exception {
+    if (msg instanceof ByteBuf) {
+      final ByteBuf byteBuf = (ByteBuf) msg;
+      if (captured == null) {
+        captured = ctx.alloc().heapBuffer(byteBuf.readableBytes());
+      }
+      if (captured.readableBytes() + byteBuf.readableBytes() > MAX_RESPONSE_SIZE) {
+        tooLarge = true;
+      } else {
+        captured.writeBytes(byteBuf, byteBuf.readerIndex(), byteBuf.readableBytes());
+      }
+    }
+    ctx.write(msg, promise);
+  }
+
+  @Override
+  public void flush(final @NotNull ChannelHandlerContext ctx) throws Exception {
+    if (captured != null && captured.isReadable()) {
+      // Don't cache incomplete responses
+      if (!tooLarge) {
+        FallbackStatusCache.put(key, ByteBufUtil.getBytes(captured));
+      }
+      // We've got the response; we don't need to listen for anything else
+      ctx.pipeline().remove(this);
+    }
+    ctx.flush();
+  }
+
+  @Override
+  public void handlerRemoved(final @NotNull ChannelHandlerContext ctx) throws Exception {
+    if (captured != null) {
+      captured.release();
+      captured = null;
+    }
+  }
+}
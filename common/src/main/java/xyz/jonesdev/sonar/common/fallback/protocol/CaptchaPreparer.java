@@ -20,6 +20,7 @@
 import lombok.experimental.UtilityClass;
 import xyz.jonesdev.sonar.api.Sonar;
 import xyz.jonesdev.sonar.api.event.impl.CaptchaGenerationEndEvent;
+import xyz.jonesdev.sonar.api.fallback.LoadSheddingLevel;
 import xyz.jonesdev.sonar.api.timer.SystemTimer;
 import xyz.jonesdev.sonar.common.fallback.protocol.map.MapCaptchaInfo;
 import xyz.jonesdev.sonar.common.fallback.protocol.map.MapColorPalette;
@@ -57,6 +58,15 @@ public void prepare() {
     // Prepare everything asynchronously
     PREPARATION_SERVICE.execute(() -> {
       for (preparedAmount = 0; preparedAmount < precomputeAmount;) {
+        // Don't waste any resources on new answers if the captcha is being skipped anyway
+        while (Sonar.get0().getFallback().getLoadSheddingLevel().isAtLeast(LoadSheddingLevel.SKIP_CAPTCHA)) {
+          try {
+            Thread.sleep(1000L);
+          } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return;
+          }
+        }
         // Generate CAPTCHA
         final char[] answer = new char[3 + RANDOM.nextInt(2)];
         for (int j = 0; j < answer.length; j++) {
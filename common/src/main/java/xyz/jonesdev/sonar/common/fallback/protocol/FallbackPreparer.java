@@ -112,8 +112,12 @@ public class FallbackPreparer {
   public FallbackPacket alreadyVerifying;
   public FallbackPacket reconnectedTooFast;
   public FallbackPacket protocolBlacklisted;
+  public FallbackPacket networkDenied;
+  public FallbackPacket tooManyJoining;
+  public FallbackPacket serverBusy;
   public FallbackPacket unsupportedVersion;
   public FallbackPacket tooManyOnlinePerIP;
+  public FallbackPacket invalidHostname;
   public FallbackPacket[] xpCountdown;
   public FallbackPacket updateTime;
 
@@ -188,9 +192,13 @@ public void prepare() {
     alreadyVerifying = new FallbackPacketSnapshot(new DisconnectPacket(Sonar.get0().getConfig().getVerification().getAlreadyVerifying(), true));
     alreadyQueued = new FallbackPacketSnapshot(new DisconnectPacket(Sonar.get0().getConfig().getVerification().getAlreadyQueued(), true));
     protocolBlacklisted = new FallbackPacketSnapshot(new DisconnectPacket(Sonar.get0().getConfig().getVerification().getProtocolBlacklisted(), true));
+    networkDenied = new FallbackPacketSnapshot(new DisconnectPacket(Sonar.get0().getConfig().getVerification().getNetworkDenied(), true));
+    tooManyJoining = new FallbackPacketSnapshot(new DisconnectPacket(Sonar.get0().getConfig().getVerification().getTooManyJoining(), true));
+    serverBusy = new FallbackPacketSnapshot(new DisconnectPacket(Sonar.get0().getConfig().getVerification().getServerBusy(), true));
     reconnectedTooFast = new FallbackPacketSnapshot(new DisconnectPacket(Sonar.get0().getConfig().getVerification().getTooFastReconnect(), true));
     unsupportedVersion = new FallbackPacketSnapshot(new DisconnectPacket(Sonar.get0().getConfig().getVerification().getUnsupportedVersion(), true));
     tooManyOnlinePerIP = new FallbackPacketSnapshot(new DisconnectPacket(Sonar.get0().getConfig().getTooManyOnlinePerIp(), true));
+    invalidHostname = new FallbackPacketSnapshot(new DisconnectPacket(Sonar.get0().getConfig().getConnections().getInvalidHostname(), true));
 
     // Prepare transfer packet
     if (Sonar.get0().getConfig().getGeneralConfig().getBoolean("verification.transfer.enabled")) {
@@ -220,7 +228,8 @@ public void prepare() {
     }
 
     if (Sonar.get0().getConfig().getVerification().getMap().getTiming() != SonarConfiguration.Verification.Timing.NEVER
-      || Sonar.get0().getConfig().getVerification().getGravity().isCaptchaOnFail()) {
+      || Sonar.get0().getConfig().getVerification().getGravity().isCaptchaOnFail()
+      || Sonar.get0().getConfig().getGeoIP().hasPolicy(SonarConfiguration.GeoIP.Policy.CAPTCHA)) {
       // Prepare CAPTCHA messages
       enterCodeMessage = new FallbackPacketSnapshot(new SystemChatPacket(new ComponentHolder(
         MiniMessage.miniMessage().deserialize(
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.common.fallback.ratelimit;
+
+import lombok.experimental.UtilityClass;
+import org.jetbrains.annotations.NotNull;
+import xyz.jonesdev.sonar.api.Sonar;
+import xyz.jonesdev.sonar.api.config.SonarConfiguration;
+import xyz.jonesdev.sonar.api.fallback.InetAddressKeys;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+
+/**
+ * Limits how fast single IP addresses and networks can open new connections.
+ * IPv4 addresses are limited per address and per /24 network;
+ * IPv6 addresses are limited per address, per /64 network and per /48 network.
+ */
+@UtilityClass
+public class ConnectionTokenBuckets {
+  private final TokenBucketTable ADDRESSES = new TokenBucketTable(4096);
+  private final TokenBucketTable SUBNETS = new TokenBucketTable(2048);
+  private final TokenBucketTable LARGE_SUBNETS = new TokenBucketTable(1024);
+
+  /**
+   * @param inetAddress IP address of the new connection
+   * @return false if the IP address or its network has opened too many connections
+   */
+  public boolean tryAcquire(final @NotNull InetAddress inetAddress) {
+    final SonarConfiguration.Connections config = Sonar.get0().getConfig().getConnections();
+
+    if (!tryConsume(ADDRESSES, InetAddressKeys.key(inetAddress), config.getAddressBucket())) {
+      return false;
+    }
+
+    if (inetAddress instanceof Inet4Address) {
+      return tryConsume(SUBNETS, InetAddressKeys.prefixKey(inetAddress, 24), config.getSubnetBucket());
+    }
+
+    return tryConsume(SUBNETS, InetAddressKeys.prefixKey(inetAddress, 64), config.getSubnetBucket())
+      && tryConsume(LARGE_SUBNETS, InetAddressKeys.prefixKey(inetAddress, 48), config.getLargeSubnetBucket());
+  }
+
+  private boolean tryConsume(final @NotNull TokenBucketTable table, final long key,
+                             final SonarConfiguration.Connections.@NotNull TokenBucket bucket) {
+    // A capacity of 0 means that the limit is disabled
+    return bucket.getCapacity() <= 0 || table.tryConsume(key, bucket.getCapacity(), bucket.getRefillPerSecond());
+  }
+}
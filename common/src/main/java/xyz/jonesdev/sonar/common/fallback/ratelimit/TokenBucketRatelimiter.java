@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.common.fallback.ratelimit;
+
+import org.jetbrains.annotations.NotNull;
+import xyz.jonesdev.sonar.api.Sonar;
+import xyz.jonesdev.sonar.api.config.SonarConfiguration;
+import xyz.jonesdev.sonar.api.fallback.ExpiringAddressTable;
+import xyz.jonesdev.sonar.api.fallback.InetAddressKeys;
+import xyz.jonesdev.sonar.api.fallback.ratelimit.Ratelimiter;
+
+import java.net.InetAddress;
+
+/**
+ * Limits how often an IP address can try to get verified using token buckets.
+ * The limits depend on how the last verification of the IP address ended,
+ * so players who failed the verification have to wait longer than others.
+ * Buckets are refilled lazily, so there is no need for any background tasks.
+ */
+public final class TokenBucketRatelimiter implements Ratelimiter<InetAddress> {
+  private static final int FAILED = 1, SUCCEEDED = 2;
+
+  private final TokenBucketTable loginBuckets = new TokenBucketTable(1024);
+  private final TokenBucketTable failedBuckets = new TokenBucketTable(512);
+  private final TokenBucketTable succeededBuckets = new TokenBucketTable(256);
+  // How the last verification of an IP address ended; forgotten once the bucket would be full again
+  private final ExpiringAddressTable outcomes = new ExpiringAddressTable(1 << 12, 1 << 18, true);
+
+  @Override
+  public boolean attempt(final @NotNull InetAddress inetAddress) {
+    final int outcome = outcomes.get(inetAddress);
+    final SonarConfiguration.Verification.RejoinLimit limit = getLimit(outcome);
+    // A capacity of 0 means that the limit is disabled
+    return limit.getCapacity() <= 0 || getBuckets(outcome).tryConsume(
+      InetAddressKeys.aggregatedKey(inetAddress), limit.getCapacity(), 1000D / limit.getRefillDelay());
+  }
+
+  @Override
+  public boolean isRatelimited(final @NotNull InetAddress inetAddress) {
+    final int outcome = outcomes.get(inetAddress);
+    final SonarConfiguration.Verification.RejoinLimit limit = getLimit(outcome);
+    return limit.getCapacity() > 0 && !getBuckets(outcome).hasTokens(
+      InetAddressKeys.aggregatedKey(inetAddress), limit.getCapacity(), 1000D / limit.getRefillDelay());
+  }
+
+  @Override
+  public void countFailure(final @NotNull InetAddress inetAddress) {
+    final SonarConfiguration.Verification.RejoinLimit limit = getLimit(FAILED);
+    outcomes.put(inetAddress, FAILED, Math.max(limit.getRefillTime(), 1L));
+    // The failed attempt counts towards the stricter limit as well
+    if (limit.getCapacity() > 0) {
+      failedBuckets.tryConsume(InetAddressKeys.aggregatedKey(inetAddress),
+        limit.getCapacity(), 1000D / limit.getRefillDelay());
+    }
+  }
+
+  @Override
+  public void countSuccess(final @NotNull InetAddress inetAddress) {
+    final SonarConfiguration.Verification.RejoinLimit limit = getLimit(SUCCEEDED);
+    outcomes.put(inetAddress, SUCCEEDED, Math.max(limit.getRefillTime(), 1L));
+  }
+
+  private static SonarConfiguration.Verification.@NotNull RejoinLimit getLimit(final int outcome) {
+    final SonarConfiguration.Verification config = Sonar.get0().getConfig().getVerification();
+    switch (outcome) {
+      case FAILED:
+        return config.getFailedLimit();
+      case SUCCEEDED:
+        return config.getSucceededLimit();
+      default:
+        return config.getLoginLimit();
+    }
+  }
+
+  private @NotNull TokenBucketTable getBuckets(final int outcome) {
+    switch (outcome) {
+      case FAILED:
+        return failedBuckets;
+      case SUCCEEDED:
+        return succeededBuckets;
+      default:
+        return loginBuckets;
+    }
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.common.fallback.ratelimit;
+
+import xyz.jonesdev.sonar.api.fallback.InetAddressKeys;
+
+/**
+ * Fixed-size table of token buckets keyed by primitive longs.
+ * Buckets are refilled lazily when they are accessed, so idle buckets do not cost anything.
+ * There is no explicit removal; a slot is simply reused once its bucket would be full again
+ * or, if the probed slots are all in use, the least recently used slot is overwritten.
+ */
+public final class TokenBucketTable {
+  private static final int SEGMENTS = 16;
+  private static final int MAX_PROBES = 8;
+
+  private final Segment[] segments = new Segment[SEGMENTS];
+
+  public TokenBucketTable(final int slotsPerSegment) {
+    // Round up to the next power of two, so we can use a mask instead of a modulo
+    final int slots = Integer.highestOneBit(Math.max(slotsPerSegment, MAX_PROBES) - 1) << 1;
+    for (int i = 0; i < SEGMENTS; i++) {
+      segments[i] = new Segment(slots);
+    }
+  }
+
+  /**
+   * Takes a single token from the bucket of the given key
+   *
+   * @param key             Key of the bucket
+   * @param capacity        Maximum number of tokens the bucket can hold
+   * @param refillPerSecond Number of tokens added to the bucket every second
+   * @return false if the bucket does not have any tokens left
+   */
+  public boolean tryConsume(final long key, final int capacity, final double refillPerSecond) {
+    // 0 is used for marking empty slots
+    final long safeKey = key == 0L ? Long.MIN_VALUE : key;
+    final long hash = InetAddressKeys.mix(safeKey);
+    return segments[(int) (hash >>> 60) & (SEGMENTS - 1)].tryConsume(safeKey, (int) hash, capacity, refillPerSecond);
+  }
+
+  /**
+   * Checks if the bucket of the given key has any tokens left without taking one
+   *
+   * @param key             Key of the bucket
+   * @param capacity        Maximum number of tokens the bucket can hold
+   * @param refillPerSecond Number of tokens added to the bucket every second
+   * @return false if the bucket does not have any tokens left
+   */
+  public boolean hasTokens(final long key, final int capacity, final double refillPerSecond) {
+    final long safeKey = key == 0L ? Long.MIN_VALUE : key;
+    final long hash = InetAddressKeys.mix(safeKey);
+    return segments[(int) (hash >>> 60) & (SEGMENTS - 1)].hasTokens(safeKey, (int) hash, capacity, refillPerSecond);
+  }
+
+  private static final class Segment {
+    private final long[] keys;
+    private final long[] lastRefill;
+    private final double[] tokens;
+    private final int mask;
+
+    Segment(final int slots) {
+      this.keys = new long[slots];
+      this.lastRefill = new long[slots];
+      this.tokens = new double[slots];
+      this.mask = slots - 1;
+    }
+
+    synchronized boolean hasTokens(final long key, final int hash,
+                                   final int capacity, final double refillPerSecond) {
+      for (int probe = 0; probe < MAX_PROBES; probe++) {
+        final int slot = (hash + probe) & mask;
+        if (keys[slot] == key) {
+          final double refillPerNano = refillPerSecond / 1e9;
+          return tokens[slot] + (System.nanoTime() - lastRefill[slot]) * refillPerNano >= 1;
+        }
+        if (keys[slot] == 0L) {
+          break;
+        }
+      }
+      // Buckets that don't exist are full
+      return capacity >= 1;
+    }
+
+    synchronized boolean tryConsume(final long key, final int hash,
+                                    final int capacity, final double refillPerSecond) {
+      final long now = System.nanoTime();
+      final double refillPerNano = refillPerSecond / 1e9;
+      int reusable = -1, oldest = -1;
+
+      for (int probe = 0; probe < MAX_PROBES; probe++) {
+        final int slot = (hash + probe) & mask;
+        final long slotKey = keys[slot];
+
+        if (slotKey == key) {
+          final double available = Math.min(capacity, tokens[slot] + (now - lastRefill[slot]) * refillPerNano);
+          lastRefill[slot] = now;
+          if (available < 1) {
+            tokens[slot] = available;
+            return false;
+          }
+          tokens[slot] = available - 1;
+          return true;
+        }
+
+        // Slots are never emptied, so the key cannot be stored any further
+        if (slotKey == 0L) {
+          if (reusable == -1) {
+            reusable = slot;
+          }
+          break;
+        }
+
+        // A bucket that has been refilled completely can be forgotten
+        if (reusable == -1 && tokens[slot] + (now - lastRefill[slot]) * refillPerNano >= capacity) {
+          reusable = slot;
+        }
+        if (oldest == -1 || lastRefill[slot] < lastRefill[oldest]) {
+          oldest = slot;
+        }
+      }
+
+      final int slot = reusable != -1 ? reusable : oldest;
+      keys[slot] = key;
+      lastRefill[slot] = now;
+      tokens[slot] = capacity - 1;
+      return capacity >= 1;
+    }
+  }
+}
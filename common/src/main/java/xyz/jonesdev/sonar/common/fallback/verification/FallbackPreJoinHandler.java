@@ -30,6 +30,7 @@
 import xyz.jonesdev.sonar.common.fallback.protocol.packets.play.ClientInformationPacket;
 import xyz.jonesdev.sonar.common.fallback.protocol.packets.play.KeepAlivePacket;
 import xyz.jonesdev.sonar.common.fallback.protocol.packets.play.PluginMessagePacket;
+import xyz.jonesdev.sonar.common.statistics.GlobalSonarStatistics;
 
 import java.nio.charset.StandardCharsets;
 import java.util.concurrent.TimeUnit;
@@ -54,7 +55,7 @@ public FallbackPreJoinHandler(final @NotNull FallbackUser user) {
          * is active and legitimate, thereby preventing bot connections that
          * could flood the server with login attempts and other unwanted traffic.
          */
-        user.write(PRE_JOIN_KEEP_ALIVE);
+        user.writeImmediately(PRE_JOIN_KEEP_ALIVE);
       }
     }
   }
@@ -134,6 +135,9 @@ public void handle(final @NotNull FallbackPacket packet) {
           || user.getProtocolVersion().greaterThanOrEquals(ProtocolVersion.MINECRAFT_1_13),
         "illegal PluginMessage channel: " + pluginMessage.getChannel());
 
+      // Keep track of the client brands, even if they aren't validated
+      GlobalSonarStatistics.countClientBrand(decodeClientBrand(pluginMessage.getData(), 64));
+
       // Validate the client branding using a regex to filter unwanted characters.
       if (Sonar.get0().getConfig().getVerification().getBrand().isEnabled()) {
         validateClientBrand(pluginMessage.getData());
@@ -185,12 +189,7 @@ private void validateClientBrand(final byte @NotNull [] data) {
     // Check if the decoded client brand string is too long
     checkState(data.length < Sonar.get0().getConfig().getVerification().getBrand().getMaxLength(),
       "client brand contains too much data: " + data.length);
-    // https://discord.com/channels/923308209769426994/1116066363887321199/1256929441053933608
-    String brand = new String(data, StandardCharsets.UTF_8);
-    // Remove the invalid character at the beginning of the client brand
-    if (user.getProtocolVersion().greaterThanOrEquals(ProtocolVersion.MINECRAFT_1_8)) {
-      brand = brand.substring(1);
-    }
+    final String brand = decodeClientBrand(data, data.length);
     // Check for illegal client brands
     checkState(!brand.equals("Vanilla"), "illegal client brand: " + brand);
     // Regex pattern for validating client brands
@@ -198,6 +197,16 @@ private void validateClientBrand(final byte @NotNull [] data) {
     checkState(pattern.matcher(brand).matches(), "client brand does not match pattern: " + brand);
   }
 
+  private @NotNull String decodeClientBrand(final byte @NotNull [] data, final int maximumLength) {
+    // https://discord.com/channels/923308209769426994/1116066363887321199/1256929441053933608
+    final String brand = new String(data, 0, Math.min(data.length, maximumLength), StandardCharsets.UTF_8);
+    // Remove the invalid character at the beginning of the client brand
+    if (!brand.isEmpty() && user.getProtocolVersion().greaterThanOrEquals(ProtocolVersion.MINECRAFT_1_8)) {
+      return brand.substring(1);
+    }
+    return brand;
+  }
+
   private void validateClientLocale(final @NotNull String locale) {
     // Check the client locale by performing a simple regex check
     // that disallows non-ascii characters by default.
@@ -134,7 +134,7 @@ public void handle(final @NotNull FallbackPacket packet) {
   private void sendTransaction() {
     // Send a Transaction (Ping) packet with a random ID
     expectedTransactionId = (short) -RANDOM.nextInt(Short.MAX_VALUE);
-    user.write(new TransactionPacket(0, expectedTransactionId, false));
+    user.writeImmediately(new TransactionPacket(0, expectedTransactionId, false));
     waitingTransaction = true;
   }
 
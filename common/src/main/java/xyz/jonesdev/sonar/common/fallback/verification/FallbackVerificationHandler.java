@@ -24,8 +24,10 @@
 import xyz.jonesdev.sonar.api.event.impl.UserBlacklistedEvent;
 import xyz.jonesdev.sonar.api.event.impl.UserVerifyFailedEvent;
 import xyz.jonesdev.sonar.api.event.impl.UserVerifySuccessEvent;
+import xyz.jonesdev.sonar.api.fallback.FallbackLoginQueue;
 import xyz.jonesdev.sonar.api.fallback.FallbackUser;
 import xyz.jonesdev.sonar.api.fallback.protocol.ProtocolVersion;
+import xyz.jonesdev.sonar.common.fallback.geoip.FallbackGeoIP;
 import xyz.jonesdev.sonar.common.fallback.netty.FallbackVarInt21FrameDecoder;
 import xyz.jonesdev.sonar.common.fallback.netty.FallbackVarIntLengthEncoder;
 import xyz.jonesdev.sonar.common.fallback.protocol.FallbackPacketDecoder;
@@ -51,10 +53,16 @@ protected final void finishVerification() {
     // Add verified player to the database
     Sonar.get0().getVerifiedPlayerController().add(new VerifiedPlayer(
       user.getFingerprint(), user.getLoginTimer().getStart()));
+    // Remember the player, so they are polled sooner when joining from a new IP address of the same network
+    Sonar.get0().getFallback().trust(user.getUsername(), FallbackLoginQueue.flowOf(
+      user.getInetAddress(), FallbackGeoIP.getAsn(user.getInetAddress())));
 
     // Call the VerifySuccessEvent for external API usage
     Sonar.get0().getEventManager().publish(new UserVerifySuccessEvent(user));
 
+    // Let the rate-limiter know that the player has passed the verification
+    Sonar.get0().getFallback().getRatelimiter().countSuccess(user.getInetAddress());
+
     // If enabled, transfer the player back to the origin server.
     // This feature was introduced by Mojang in Minecraft version 1.20.5.
     if (transferToOrigin != null && user.getProtocolVersion().greaterThanOrEquals(ProtocolVersion.MINECRAFT_1_20_5)) {
@@ -83,6 +91,10 @@ protected final void finishVerification() {
   protected final void fail(final @NotNull String reason) {
     GlobalSonarStatistics.totalFailedVerifications++;
 
+    // Reset the connection instead of closing it gracefully, if configured
+    if (Sonar.get0().getConfig().getConnections().isFastTeardown()) {
+      ProtocolUtil.resetOnClose(user.channel());
+    }
     user.disconnect(Sonar.get0().getConfig().getVerification().getVerificationFailed());
 
     final boolean shouldLog = Sonar.get0().getAttackTracker().getCurrentAttack() == null
@@ -100,13 +112,13 @@ protected final void fail(final @NotNull String reason) {
     // Call the VerifyFailedEvent for external API usage
     Sonar.get0().getEventManager().publish(new UserVerifyFailedEvent(user, reason));
 
+    // Let the rate-limiter know that the player has failed the verification
+    Sonar.get0().getFallback().getRatelimiter().countFailure(user.getInetAddress());
+
     // Use a label, so we can easily add more code beneath this method in the future
     blacklist: {
-      final String hostAddress = user.getInetAddress().getHostAddress();
-      final int score = Sonar.get0().getFallback().getBlacklist().get(hostAddress, __ -> 0);
-      final int newScore = score + 1;
-
-      Sonar.get0().getFallback().getBlacklist().put(hostAddress, newScore);
+      final long blacklistTime = Sonar.get0().getConfig().getVerification().getBlacklistTime();
+      final int newScore = Sonar.get0().getFallback().getBlacklist().add(user.getInetAddress(), 1, blacklistTime);
 
       // The user is allowed to disable the blacklist entirely by setting the threshold to 0
       final int limit = Sonar.get0().getConfig().getVerification().getBlacklistThreshold();
@@ -115,6 +127,11 @@ protected final void fail(final @NotNull String reason) {
 
       GlobalSonarStatistics.totalBlacklistedPlayers++;
 
+      // Blacklist the entire network if too many of its IP addresses have been blacklisted
+      if (newScore == limit) {
+        Sonar.get0().getFallback().countBlacklistedAddress(user.getInetAddress());
+      }
+
       // Call the BotBlacklistedEvent for external API usage
       Sonar.get0().getEventManager().publish(new UserBlacklistedEvent(user));
 
@@ -20,7 +20,14 @@
 import lombok.experimental.UtilityClass;
 import org.jetbrains.annotations.NotNull;
 import xyz.jonesdev.sonar.api.Sonar;
+import xyz.jonesdev.sonar.api.fallback.FallbackLoginQueue;
 import xyz.jonesdev.sonar.api.update.UpdateChecker;
+import xyz.jonesdev.sonar.common.fallback.FallbackAcceptGovernor;
+import xyz.jonesdev.sonar.common.fallback.FallbackBlacklistStorage;
+import xyz.jonesdev.sonar.common.fallback.FallbackFirewallExporter;
+import xyz.jonesdev.sonar.common.fallback.FallbackLoginPacer;
+import xyz.jonesdev.sonar.common.fallback.FallbackMemoryGovernor;
+import xyz.jonesdev.sonar.common.fallback.netty.FallbackLagMonitor;
 import xyz.jonesdev.sonar.common.statistics.GlobalSonarStatistics;
 
 import java.util.concurrent.Executors;
@@ -47,18 +54,28 @@ public void start() {
     VERBOSE.scheduleAtFixedRate(() -> {
       // Make sure to clean up the cached statistics since we don't want to display wrong values
       GlobalSonarStatistics.cleanUpCaches();
-      Sonar.get0().getFallback().getBlacklist().cleanUp();
+      Sonar.get0().getFallback().cleanUpBlacklist();
+      // Measure the event loop delay and shed load if necessary
+      FallbackLagMonitor.sample();
       // Update the attack tracker
       Sonar.get0().getAttackTracker().checkIfUnderAttack();
       // Publish the action bar notifications
       Sonar.get0().getActionBarNotificationHandler().handleNotification();
     }, 0L, 250L, TimeUnit.MILLISECONDS);
 
-    FALLBACK_QUEUE.scheduleAtFixedRate(() -> Sonar.get0().getFallback().getQueue().poll(),
-      1L, 1L, TimeUnit.SECONDS);
+    FALLBACK_QUEUE.scheduleAtFixedRate(() -> {
+      Sonar.get0().getFallback().getQueue().drain();
+      FallbackLoginPacer.drain();
+    }, FallbackLoginQueue.DRAIN_INTERVAL_MILLIS, FallbackLoginQueue.DRAIN_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
 
-    STATISTICS.scheduleAtFixedRate(GlobalSonarStatistics::hitEverySecond,
-      0L, 1L, TimeUnit.SECONDS);
+    STATISTICS.scheduleAtFixedRate(() -> {
+      GlobalSonarStatistics.hitEverySecond();
+      FallbackAcceptGovernor.hitEverySecond();
+      FallbackMemoryGovernor.hitEverySecond();
+      FallbackBlacklistStorage.hitEverySecond();
+      FallbackFirewallExporter.hitEverySecond();
+      Sonar.get0().getFallback().getQueue().adapt(FallbackLagMonitor.getEventLoopDelay());
+    }, 0L, 1L, TimeUnit.SECONDS);
 
     // This config setting only updates when the server is restarted
     if (Sonar.get0().getConfig().getGeneralConfig().getBoolean("general.check-for-updates")) {
@@ -21,12 +21,19 @@
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.Ticker;
 import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
 import xyz.jonesdev.sonar.api.Sonar;
+import xyz.jonesdev.sonar.api.fallback.protocol.ProtocolVersion;
 import xyz.jonesdev.sonar.api.profiler.SimpleProcessProfiler;
 import xyz.jonesdev.sonar.api.statistics.SonarStatistics;
+import xyz.jonesdev.sonar.common.fallback.netty.FallbackLagMonitor;
 
+import java.net.InetAddress;
 import java.time.Duration;
+import java.util.Comparator;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 public final class GlobalSonarStatistics implements SonarStatistics {
   private static final Cache<Integer, Byte> LOGINS_PER_SECOND = Caffeine.newBuilder()
@@ -39,6 +46,14 @@ public final class GlobalSonarStatistics implements SonarStatistics {
     .ticker(Ticker.systemTicker())
     .build();
 
+  // Limit the number of hostnames we keep track of, since bots can send any hostname they want
+  private static final Cache<String, AtomicInteger> REJECTED_HOSTNAMES = Caffeine.newBuilder()
+    .maximumSize(1000)
+    .build();
+
+  private static final LongAdder INCOMING_TRAFFIC = new LongAdder();
+  private static final LongAdder OUTGOING_TRAFFIC = new LongAdder();
+
   private static final AtomicInteger ACTION_COUNTER = new AtomicInteger(Integer.MIN_VALUE);
 
   /**
@@ -50,22 +65,81 @@ public static void countConnection() {
     CONNECTIONS_PER_SECOND.put(ACTION_COUNTER.getAndIncrement(), (byte) 0);
   }
 
+  /**
+   * Counts a connection that has been rejected before the player could log in
+   * (e.g. because of its server address, its protocol version or a connection limit)
+   */
+  @ApiStatus.Internal
+  public static void countRejectedHandshake() {
+    totalRejectedHandshakes++;
+  }
+
+  @ApiStatus.Internal
+  public static void countRejectedHostname(final @NotNull String hostname) {
+    REJECTED_HOSTNAMES.get(hostname, __ -> new AtomicInteger()).incrementAndGet();
+    totalRejectedHostnames++;
+    countRejectedHandshake();
+  }
+
+  /**
+   * @return Server addresses that have been rejected most often, e.g. "example.net (12), 1.2.3.4 (3)"
+   */
+  @ApiStatus.Internal
+  public static @NotNull String formatRejectedHostnames() {
+    final StringBuilder builder = new StringBuilder();
+    REJECTED_HOSTNAMES.asMap().entrySet().stream()
+      .sorted(Comparator.comparingInt((Map.Entry<String, AtomicInteger> entry) -> entry.getValue().get()).reversed())
+      .limit(5)
+      .forEach(entry -> {
+        if (builder.length() > 0) {
+          builder.append(", ");
+        }
+        builder.append(entry.getKey())
+          .append(" (").append(Sonar.DECIMAL_FORMAT.format(entry.getValue().get())).append(')');
+      });
+    return builder.length() == 0 ? "-" : builder.toString();
+  }
+
+  @ApiStatus.Internal
+  public static void countIncomingTraffic(final long bytes) {
+    INCOMING_TRAFFIC.add(bytes);
+  }
+
+  @ApiStatus.Internal
+  public static void countOutgoingTraffic(final long bytes) {
+    OUTGOING_TRAFFIC.add(bytes);
+  }
+
   @ApiStatus.Internal
   public static void countLogin() {
     LOGINS_PER_SECOND.put(ACTION_COUNTER.getAndIncrement(), (byte) 0);
     totalJoinedPlayers++;
   }
 
+  @ApiStatus.Internal
+  public static void countLoginSource(final @NotNull InetAddress inetAddress,
+                                      final @NotNull String username,
+                                      final @NotNull ProtocolVersion protocolVersion) {
+    Sonar.get0().getAttackTracker().getSources().countLogin(inetAddress, username, protocolVersion);
+  }
+
+  @ApiStatus.Internal
+  public static void countClientBrand(final @NotNull String clientBrand) {
+    Sonar.get0().getAttackTracker().getSources().countClientBrand(clientBrand);
+  }
+
   // Cache all per-session statistics
   private static int totalJoinedPlayers;
   public static int totalSuccessfulVerifications;
   public static int totalFailedVerifications;
   public static int totalAttemptedVerifications;
   public static long totalBlacklistedPlayers;
+  public static long totalRejectedHostnames;
+  public static long totalRejectedHandshakes;
   public static long totalIncomingTraffic;
   public static long totalOutgoingTraffic;
-  public static long perSecondIncomingTraffic;
-  public static long perSecondOutgoingTraffic;
+  private static long perSecondIncomingTraffic;
+  private static long perSecondOutgoingTraffic;
   private static String perSecondIncomingTrafficFormatted;
   private static String perSecondOutgoingTrafficFormatted;
 
@@ -74,13 +148,20 @@ public static void cleanUpCaches() {
     CONNECTIONS_PER_SECOND.cleanUp();
   }
 
+  @ApiStatus.Internal
+  public static void trimCaches() {
+    cleanUpCaches();
+    // The rejected hostnames are purely informational, so we can safely throw them away
+    REJECTED_HOSTNAMES.invalidateAll();
+  }
+
   public static void hitEverySecond() {
+    perSecondIncomingTraffic = INCOMING_TRAFFIC.sumThenReset();
+    perSecondOutgoingTraffic = OUTGOING_TRAFFIC.sumThenReset();
     totalIncomingTraffic += perSecondIncomingTraffic;
     totalOutgoingTraffic += perSecondOutgoingTraffic;
     perSecondIncomingTrafficFormatted = SimpleProcessProfiler.formatMemory(perSecondIncomingTraffic);
     perSecondOutgoingTrafficFormatted = SimpleProcessProfiler.formatMemory(perSecondOutgoingTraffic);
-    perSecondIncomingTraffic = 0L;
-    perSecondOutgoingTraffic = 0L;
   }
 
   @Override
@@ -145,7 +226,7 @@ public int getTotalFailedVerifications() {
 
   @Override
   public long getCurrentAttemptedVerifications() {
-    return Sonar.get0().getFallback().getConnected().size();
+    return Sonar.get0().getFallback().getAddressTable().getVerifyingCount();
   }
 
   @Override
@@ -153,9 +234,14 @@ public int getTotalAttemptedVerifications() {
     return totalAttemptedVerifications;
   }
 
+  @Override
+  public long getEventLoopDelay() {
+    return FallbackLagMonitor.getEventLoopDelay();
+  }
+
   @Override
   public long getCurrentBlacklistSize() {
-    return Sonar.get0().getFallback().getBlacklist().estimatedSize();
+    return Sonar.get0().getFallback().getBlacklist().size();
   }
 
   @Override
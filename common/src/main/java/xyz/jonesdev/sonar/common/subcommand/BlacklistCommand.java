@@ -25,6 +25,10 @@
 import xyz.jonesdev.sonar.api.command.subcommand.Subcommand;
 import xyz.jonesdev.sonar.api.command.subcommand.SubcommandInfo;
 
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
 @SubcommandInfo(
   name = "blacklist",
   arguments = {"add", "remove", "clear", "size"}
@@ -36,57 +40,78 @@ protected void execute(final @NotNull InvocationSource source, final String @Not
     switch (args[1].toLowerCase()) {
       case "add": {
         if (args.length <= 2) {
-          incorrectUsage(source, "blacklist add <IP address>");
+          incorrectUsage(source, "blacklist add <IP address[/prefix length]>");
           return;
         }
 
-        final String rawAddress = validateIP(source, args[2]);
+        // Entire networks can be blacklisted using the CIDR notation (e.g. 1.2.3.0/24)
+        final int separator = args[2].indexOf('/');
+        final String rawAddress = validateIP(source, separator == -1 ? args[2] : args[2].substring(0, separator));
         // Make sure the given IP address is valid
         if (rawAddress == null) return;
 
-        if (Sonar.get0().getFallback().getBlacklist().asMap().containsKey(rawAddress)) {
+        final InetAddress inetAddress = toInetAddress(rawAddress);
+        final int prefixLength = separator == -1 ? -1 : parsePrefixLength(source, inetAddress, args[2].substring(separator + 1));
+        if (separator != -1 && prefixLength == -1) return;
+
+        if (prefixLength == -1
+          ? Sonar.get0().getFallback().getBlacklist().get(inetAddress) > 0
+          : Sonar.get0().getFallback().getBlacklistedNetworks().containsRange(inetAddress, prefixLength)) {
           source.sendMessage(MiniMessage.miniMessage().deserialize(
             Sonar.get0().getConfig().getMessagesConfig().getString("commands.blacklist.ip-duplicate"),
             Placeholder.component("prefix", Sonar.get0().getConfig().getPrefix()),
-            Placeholder.unparsed("ip", rawAddress)));
+            Placeholder.unparsed("ip", args[2])));
           return;
         }
 
-        Sonar.get0().getFallback().getBlacklist().put(rawAddress, 1337 /* arbitrarily high number */);
+        final long blacklistTime = Sonar.get0().getConfig().getVerification().getBlacklistTime();
+        if (prefixLength == -1) {
+          Sonar.get0().getFallback().getBlacklist().put(inetAddress, 1337 /* arbitrarily high number */, blacklistTime);
+        } else {
+          Sonar.get0().getFallback().getBlacklistedNetworks().insert(inetAddress, prefixLength, blacklistTime);
+        }
         source.sendMessage(MiniMessage.miniMessage().deserialize(
           Sonar.get0().getConfig().getMessagesConfig().getString("commands.blacklist.add"),
           Placeholder.component("prefix", Sonar.get0().getConfig().getPrefix()),
-          Placeholder.unparsed("ip", rawAddress)));
+          Placeholder.unparsed("ip", args[2])));
         break;
       }
 
       case "remove": {
         if (args.length <= 2) {
-          incorrectUsage(source, "blacklist remove <IP address>");
+          incorrectUsage(source, "blacklist remove <IP address[/prefix length]>");
           return;
         }
 
-        final String rawAddress = validateIP(source, args[2]);
+        // Entire networks can be blacklisted using the CIDR notation (e.g. 1.2.3.0/24)
+        final int separator = args[2].indexOf('/');
+        final String rawAddress = validateIP(source, separator == -1 ? args[2] : args[2].substring(0, separator));
         // Make sure the given IP address is valid
         if (rawAddress == null) return;
 
-        if (!Sonar.get0().getFallback().getBlacklist().asMap().containsKey(rawAddress)) {
+        final InetAddress inetAddress = toInetAddress(rawAddress);
+        final int prefixLength = separator == -1 ? -1 : parsePrefixLength(source, inetAddress, args[2].substring(separator + 1));
+        if (separator != -1 && prefixLength == -1) return;
+
+        if (prefixLength == -1
+          ? Sonar.get0().getFallback().getBlacklist().remove(inetAddress) <= 0
+          : !Sonar.get0().getFallback().getBlacklistedNetworks().remove(inetAddress, prefixLength)) {
           source.sendMessage(MiniMessage.miniMessage().deserialize(
             Sonar.get0().getConfig().getMessagesConfig().getString("commands.blacklist.ip-not-found"),
             Placeholder.component("prefix", Sonar.get0().getConfig().getPrefix())));
           return;
         }
 
-        Sonar.get0().getFallback().getBlacklist().invalidate(rawAddress);
         source.sendMessage(MiniMessage.miniMessage().deserialize(
           Sonar.get0().getConfig().getMessagesConfig().getString("commands.blacklist.remove"),
           Placeholder.component("prefix", Sonar.get0().getConfig().getPrefix()),
-          Placeholder.unparsed("ip", rawAddress)));
+          Placeholder.unparsed("ip", args[2])));
         break;
       }
 
       case "clear": {
-        final long blacklistSize = Sonar.get0().getFallback().getBlacklist().estimatedSize();
+        final long blacklistSize = Sonar.get0().getFallback().getBlacklist().size()
+          + Sonar.get0().getFallback().getBlacklistedNetworks().size();
 
         if (blacklistSize == 0) {
           source.sendMessage(MiniMessage.miniMessage().deserialize(
@@ -95,7 +120,10 @@ protected void execute(final @NotNull InvocationSource source, final String @Not
           return;
         }
 
-        Sonar.get0().getFallback().getBlacklist().invalidateAll();
+        Sonar.get0().getFallback().getBlacklist().clear();
+        Sonar.get0().getFallback().getBlacklistedNetworks().clear();
+        Sonar.get0().getFallback().getBlacklistedPerNetwork().clear();
+        Sonar.get0().getFallback().getCountedAddresses().clear();
         source.sendMessage(MiniMessage.miniMessage().deserialize(
           Sonar.get0().getConfig().getMessagesConfig().getString("commands.blacklist.clear"),
           Placeholder.component("prefix", Sonar.get0().getConfig().getPrefix()),
@@ -104,7 +132,8 @@ protected void execute(final @NotNull InvocationSource source, final String @Not
       }
 
       case "size": {
-        final long blacklistSize = Sonar.get0().getFallback().getBlacklist().estimatedSize();
+        final long blacklistSize = Sonar.get0().getFallback().getBlacklist().size()
+          + Sonar.get0().getFallback().getBlacklistedNetworks().size();
 
         source.sendMessage(MiniMessage.miniMessage().deserialize(
           Sonar.get0().getConfig().getMessagesConfig().getString("commands.blacklist.size"),
@@ -119,4 +148,30 @@ protected void execute(final @NotNull InvocationSource source, final String @Not
       }
     }
   }
+
+  private static int parsePrefixLength(final @NotNull InvocationSource source,
+                                       final @NotNull InetAddress inetAddress,
+                                       final @NotNull String raw) {
+    final int maximum = inetAddress instanceof Inet4Address ? 32 : 128;
+    try {
+      final int prefixLength = Integer.parseInt(raw);
+      if (prefixLength >= 1 && prefixLength <= maximum) {
+        return prefixLength;
+      }
+    } catch (NumberFormatException ignored) {
+    }
+    source.sendMessage(MiniMessage.miniMessage().deserialize(
+      Sonar.get0().getConfig().getMessagesConfig().getString("commands.invalid-ip-address"),
+      Placeholder.component("prefix", Sonar.get0().getConfig().getPrefix())));
+    return -1;
+  }
+
+  private static @NotNull InetAddress toInetAddress(final @NotNull String rawAddress) {
+    try {
+      // The address has already been validated, so this never performs a DNS lookup
+      return InetAddress.getByName(rawAddress);
+    } catch (UnknownHostException exception) {
+      throw new IllegalArgumentException(exception);
+    }
+  }
 }
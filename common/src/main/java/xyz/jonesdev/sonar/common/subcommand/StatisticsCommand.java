@@ -26,6 +26,8 @@
 import xyz.jonesdev.sonar.api.command.InvocationSource;
 import xyz.jonesdev.sonar.api.command.subcommand.Subcommand;
 import xyz.jonesdev.sonar.api.command.subcommand.SubcommandInfo;
+import xyz.jonesdev.sonar.api.tracker.AttackSources;
+import xyz.jonesdev.sonar.common.statistics.GlobalSonarStatistics;
 
 import java.util.List;
 
@@ -34,7 +36,7 @@
 @SubcommandInfo(
   name = "statistics",
   aliases = {"stats"},
-  arguments = {"network", "memory", "cpu"},
+  arguments = {"network", "memory", "cpu", "sources"},
   argumentsRequired = false
 )
 public final class StatisticsCommand extends Subcommand {
@@ -73,9 +75,9 @@ protected void execute(final @NotNull InvocationSource source, final String @Not
         placeholders = new TagResolver.Single[]{
           Placeholder.component("prefix", Sonar.get0().getConfig().getPrefix()),
           Placeholder.unparsed("verified", Sonar.DECIMAL_FORMAT.format(Sonar.get0().getVerifiedPlayerController().getCache().size())),
-          Placeholder.unparsed("verifying", Sonar.DECIMAL_FORMAT.format(Sonar.get0().getFallback().getConnected().size())),
-          Placeholder.unparsed("blacklisted", Sonar.DECIMAL_FORMAT.format(Sonar.get0().getFallback().getBlacklist().estimatedSize())),
-          Placeholder.unparsed("queued", Sonar.DECIMAL_FORMAT.format(Sonar.get0().getFallback().getQueue().getPlayers().size())),
+          Placeholder.unparsed("verifying", Sonar.DECIMAL_FORMAT.format(Sonar.get0().getFallback().getAddressTable().getVerifyingCount())),
+          Placeholder.unparsed("blacklisted", Sonar.DECIMAL_FORMAT.format(Sonar.get0().getFallback().getBlacklist().size())),
+          Placeholder.unparsed("queued", Sonar.DECIMAL_FORMAT.format(Sonar.get0().getFallback().getQueue().getSize())),
           Placeholder.unparsed("server-uptime", serverUptime),
           Placeholder.unparsed("total-joins", Sonar.DECIMAL_FORMAT.format(Sonar.get0().getStatistics().getTotalPlayersJoined())),
           Placeholder.unparsed("total-attempts", Sonar.DECIMAL_FORMAT.format(Sonar.get0().getStatistics().getTotalAttemptedVerifications())),
@@ -91,7 +93,8 @@ protected void execute(final @NotNull InvocationSource source, final String @Not
           Placeholder.unparsed("system-cpu", Sonar.DECIMAL_FORMAT.format(getSystemCPUUsage())),
           Placeholder.unparsed("average-process-cpu", Sonar.DECIMAL_FORMAT.format(getAverageProcessCPUUsage())),
           Placeholder.unparsed("average-system-cpu", Sonar.DECIMAL_FORMAT.format(getAverageSystemCPUUsage())),
-          Placeholder.unparsed("virtual-core-count", Sonar.DECIMAL_FORMAT.format(getVirtualCores()))
+          Placeholder.unparsed("virtual-core-count", Sonar.DECIMAL_FORMAT.format(getVirtualCores())),
+          Placeholder.unparsed("event-loop-delay", Sonar.DECIMAL_FORMAT.format(Sonar.get0().getStatistics().getEventLoopDelay()))
         };
         break;
       }
@@ -114,6 +117,24 @@ protected void execute(final @NotNull InvocationSource source, final String @Not
           Placeholder.unparsed("outgoing-traffic", Sonar.get0().getStatistics().getPerSecondOutgoingBandwidthFormatted()),
           Placeholder.unparsed("incoming-traffic-ttl", formatMemory(Sonar.get0().getStatistics().getTotalIncomingBandwidth())),
           Placeholder.unparsed("outgoing-traffic-ttl", formatMemory(Sonar.get0().getStatistics().getTotalOutgoingBandwidth())),
+          Placeholder.unparsed("rejected-handshakes", Sonar.DECIMAL_FORMAT.format(GlobalSonarStatistics.totalRejectedHandshakes)),
+          Placeholder.unparsed("rejected-hostnames", Sonar.DECIMAL_FORMAT.format(GlobalSonarStatistics.totalRejectedHostnames)),
+          Placeholder.unparsed("top-rejected-hostnames", GlobalSonarStatistics.formatRejectedHostnames()),
+        };
+        break;
+      }
+
+      case "sources": {
+        final AttackSources sources = Sonar.get0().getAttackTracker().getSources();
+        placeholders = new TagResolver.Single[]{
+          Placeholder.component("prefix", Sonar.get0().getConfig().getPrefix()),
+          Placeholder.unparsed("unique-ips", Sonar.DECIMAL_FORMAT.format(sources.getUniqueAddresses().estimate())),
+          Placeholder.unparsed("unique-networks", Sonar.DECIMAL_FORMAT.format(sources.getUniqueNetworks().estimate())),
+          Placeholder.unparsed("unique-usernames", Sonar.DECIMAL_FORMAT.format(sources.getUniqueUsernames().estimate())),
+          Placeholder.unparsed("top-networks", sources.formatNetworks()),
+          Placeholder.unparsed("top-usernames", sources.formatUsernames()),
+          Placeholder.unparsed("top-client-brands", sources.formatClientBrands()),
+          Placeholder.unparsed("top-protocols", sources.formatProtocolVersions())
         };
         break;
       }
@@ -22,6 +22,7 @@
 import io.netty.buffer.ByteBufUtil;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelOption;
 import io.netty.handler.codec.DecoderException;
 import io.netty.handler.codec.EncoderException;
 import io.netty.util.Version;
@@ -29,6 +30,7 @@
 import net.kyori.adventure.nbt.BinaryTag;
 import net.kyori.adventure.nbt.BinaryTagType;
 import org.jetbrains.annotations.NotNull;
+import xyz.jonesdev.sonar.api.Sonar;
 import xyz.jonesdev.sonar.api.fallback.protocol.ProtocolVersion;
 import xyz.jonesdev.sonar.common.util.exception.QuietDecoderException;
 
@@ -232,6 +234,42 @@ public static void closeWith(final @NotNull Channel channel,
     }
   }
 
+  /**
+   * Closes a rejected connection using the given message.
+   * If fast teardown is enabled, the connection is reset (RST) right after
+   * the message has been written instead of being closed gracefully.
+   */
+  public static void rejectWith(final @NotNull Channel channel,
+                                final @NotNull ProtocolVersion protocolVersion,
+                                final @NotNull Object msg) {
+    if (!Sonar.get0().getConfig().getConnections().isFastTeardown()) {
+      closeWith(channel, protocolVersion, msg);
+      return;
+    }
+    resetOnClose(channel);
+    // We don't care about delaying the message for pre-1.8 clients here
+    channel.writeAndFlush(msg).addListener(ChannelFutureListener.CLOSE);
+  }
+
+  /**
+   * Closes a rejected connection without sending any message.
+   * If fast teardown is enabled, the connection is reset (RST) instead of being closed gracefully.
+   */
+  public static void reject(final @NotNull Channel channel) {
+    if (Sonar.get0().getConfig().getConnections().isFastTeardown()) {
+      resetOnClose(channel);
+    }
+    channel.close();
+  }
+
+  /**
+   * Makes the kernel send an RST instead of a FIN when closing the channel,
+   * which frees up the socket immediately without going through TIME_WAIT.
+   */
+  public static void resetOnClose(final @NotNull Channel channel) {
+    channel.config().setOption(ChannelOption.SO_LINGER, 0);
+  }
+
   public static @NotNull UUID readUUID(final @NotNull ByteBuf byteBuf) {
     return new UUID(byteBuf.readLong(), byteBuf.readLong());
   }
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.common.fallback;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FallbackFirewallExporterTest {
+  private static final List<FallbackFirewallExporter.ExportedNetwork> NETWORKS = Arrays.asList(
+    new FallbackFirewallExporter.ExportedNetwork("1.2.3.0/24", false, 0L, 60L),
+    new FallbackFirewallExporter.ExportedNetwork("5.6.7.8", false, 0L, 1L),
+    new FallbackFirewallExporter.ExportedNetwork("2001:db8:0:0:0:0:0:0/64", true, 0L, 3600L));
+
+  @Test
+  void writesIpsetRestoreFile() throws IOException {
+    final StringWriter writer = new StringWriter();
+    FallbackFirewallExporter.writeIpset(writer, NETWORKS, "sonar");
+
+    assertEquals(
+      "create sonar hash:net family inet timeout 0 maxelem 1048576 -exist\n"
+        + "create sonar_tmp hash:net family inet timeout 0 maxelem 1048576 -exist\n"
+        + "flush sonar_tmp\n"
+        + "add sonar_tmp 1.2.3.0/24 timeout 60\n"
+        + "add sonar_tmp 5.6.7.8 timeout 1\n"
+        + "swap sonar_tmp sonar\n"
+        + "destroy sonar_tmp\n"
+        + "create sonar6 hash:net family inet6 timeout 0 maxelem 1048576 -exist\n"
+        + "create sonar6_tmp hash:net family inet6 timeout 0 maxelem 1048576 -exist\n"
+        + "flush sonar6_tmp\n"
+        + "add sonar6_tmp 2001:db8:0:0:0:0:0:0/64 timeout 3600\n"
+        + "swap sonar6_tmp sonar6\n"
+        + "destroy sonar6_tmp\n",
+      writer.toString());
+  }
+
+  @Test
+  void writesNftablesFile() throws IOException {
+    final StringWriter writer = new StringWriter();
+    FallbackFirewallExporter.writeNftables(writer, NETWORKS, "sonar");
+
+    assertEquals(
+      "table inet sonar {\n"
+        + "  set sonar { type ipv4_addr; flags interval, timeout; }\n"
+        + "  set sonar6 { type ipv6_addr; flags interval, timeout; }\n"
+        + "}\n"
+        + "flush set inet sonar sonar\n"
+        + "flush set inet sonar sonar6\n"
+        + "add element inet sonar sonar { 1.2.3.0/24 timeout 60s }\n"
+        + "add element inet sonar sonar { 5.6.7.8 timeout 1s }\n"
+        + "add element inet sonar sonar6 { 2001:db8:0:0:0:0:0:0/64 timeout 3600s }\n",
+      writer.toString());
+  }
+}
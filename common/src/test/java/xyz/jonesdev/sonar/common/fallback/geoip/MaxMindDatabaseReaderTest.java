@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.common.fallback.geoip;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * test-asn.mmdb is a small IPv6 database with 24-bit records that contains two networks:
+ * 1.2.3.0/24 (stored as ::1.2.3.0/120) with AS64500 "Example Network", and 2001:db8::/32
+ * with AS64501, whose name is a pointer to the name of the first record.
+ */
+class MaxMindDatabaseReaderTest {
+  private static final byte[] AUTONOMOUS_SYSTEM_NUMBER = MaxMindDatabaseReader.bytes("autonomous_system_number");
+  private static final byte[] AUTONOMOUS_SYSTEM_ORGANIZATION = MaxMindDatabaseReader.bytes("autonomous_system_organization");
+
+  private static File file;
+  private static MaxMindDatabaseReader reader;
+
+  @BeforeAll
+  static void open() throws Exception {
+    file = new File(MaxMindDatabaseReaderTest.class.getResource("/geoip/test-asn.mmdb").toURI());
+    reader = MaxMindDatabaseReader.open(file);
+  }
+
+  @Test
+  void readsMetadata() {
+    assertEquals("Sonar-Test-ASN", reader.getDatabaseType());
+  }
+
+  @Test
+  void looksUpIpv4Addresses() throws IOException {
+    final int record = reader.lookup(InetAddress.getByName("1.2.3.4"));
+    assertEquals(64500L, reader.readInteger(reader.findKey(record, AUTONOMOUS_SYSTEM_NUMBER)));
+    assertEquals("Example Network", reader.readString(reader.findKey(record, AUTONOMOUS_SYSTEM_ORGANIZATION)));
+    assertEquals(-1, reader.lookup(InetAddress.getByName("1.2.4.1")));
+  }
+
+  @Test
+  void looksUpIpv4MappedAddresses() throws IOException {
+    assertEquals(reader.lookup(InetAddress.getByName("1.2.3.4")),
+      reader.lookup(InetAddress.getByName("::ffff:1.2.3.200")));
+  }
+
+  @Test
+  void looksUpIpv6Addresses() throws IOException {
+    final int record = reader.lookup(InetAddress.getByName("2001:db8:1::1"));
+    assertEquals(64501L, reader.readInteger(reader.findKey(record, AUTONOMOUS_SYSTEM_NUMBER)));
+    // The name is stored as a pointer
+    assertEquals("Example Network", reader.readString(reader.findKey(record, AUTONOMOUS_SYSTEM_ORGANIZATION)));
+    assertEquals(-1, reader.lookup(InetAddress.getByName("2001:db9::1")));
+  }
+
+  @Test
+  void ignoresMissingFields() {
+    assertEquals(-1, reader.findKey(-1, AUTONOMOUS_SYSTEM_NUMBER));
+    assertEquals(-1L, reader.readInteger(-1));
+    assertNull(reader.readString(Integer.MAX_VALUE));
+  }
+
+  @Test
+  void rejectsTruncatedDatabases(final @TempDir Path directory) throws IOException {
+    final byte[] bytes = Files.readAllBytes(file.toPath());
+    final Path truncated = directory.resolve("truncated.mmdb");
+    // Drops the search tree, so the node count in the metadata doesn't fit anymore
+    Files.write(truncated, Arrays.copyOfRange(bytes, 600, bytes.length));
+    assertThrows(IOException.class, () -> MaxMindDatabaseReader.open(truncated.toFile()));
+  }
+}
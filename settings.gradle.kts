@@ -6,7 +6,8 @@
   "common",
   "bukkit",
   "bungeecord",
-  "velocity"
+  "velocity",
+  "standalone"
 ).forEach {
   include(":$it")
 }
@@ -0,0 +1,46 @@
+repositories {
+  maven(url = "https://jitpack.io/") // simple-yaml
+}
+
+dependencies {
+  implementation(project(":api"))
+  implementation(project(":common"))
+
+  // There is no server that provides these libraries for us,
+  // so we have to bundle everything that the other modules download at runtime
+  implementation(rootProject.libs.netty)
+  implementation(rootProject.libs.adventure.minimessage)
+  implementation(rootProject.libs.adventure.serializer)
+  implementation(rootProject.libs.adventure.nbt)
+  implementation(rootProject.libs.simpleyaml) {
+    exclude(group = "org.yaml")
+  }
+  implementation(rootProject.libs.gson)
+  implementation(rootProject.libs.caffeine)
+  implementation(rootProject.libs.ormlite)
+  implementation(rootProject.libs.imagefilters)
+  implementation(rootProject.libs.libby.core)
+  implementation(rootProject.libs.mysql)
+  implementation(rootProject.libs.mariadb)
+  implementation(rootProject.libs.h2)
+}
+
+tasks {
+  jar {
+    manifest {
+      attributes["Main-Class"] = "xyz.jonesdev.sonar.standalone.SonarStandaloneLauncher"
+    }
+  }
+
+  shadowJar {
+    relocate("net.kyori", "xyz.jonesdev.sonar.libs.kyori")
+
+    minimize {
+      // Native transports and database drivers are loaded reflectively
+      exclude(dependency("io.netty:.*"))
+      exclude(dependency("com.mysql:.*"))
+      exclude(dependency("org.mariadb.jdbc:.*"))
+      exclude(dependency("com.h2database:.*"))
+    }
+  }
+}
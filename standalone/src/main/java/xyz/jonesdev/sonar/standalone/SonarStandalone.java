@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.standalone;
+
+import lombok.Getter;
+import net.kyori.adventure.audience.Audience;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import xyz.jonesdev.sonar.api.SonarPlatform;
+import xyz.jonesdev.sonar.api.logger.LoggerWrapper;
+import xyz.jonesdev.sonar.common.boot.SonarBootstrap;
+import xyz.jonesdev.sonar.standalone.command.StandaloneSonarCommand;
+import xyz.jonesdev.sonar.standalone.fallback.FallbackStandaloneServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.logging.StreamHandler;
+
+@Getter
+public final class SonarStandalone extends SonarBootstrap<SonarStandaloneLauncher> {
+  private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss");
+  // Keep the last 5 log files with up to 10 MiB each
+  private static final int LOG_FILE_LIMIT = 10 * 1024 * 1024;
+  private static final int LOG_FILE_COUNT = 5;
+
+  private final StandaloneConfiguration standaloneConfig;
+  private FallbackStandaloneServer server;
+
+  public SonarStandalone(final @NotNull SonarStandaloneLauncher launcher) {
+    super(launcher, SonarPlatform.STANDALONE, launcher.getDataDirectory(),
+      new StandaloneLibraryManager(launcher.getDataDirectory().toPath()));
+    this.standaloneConfig = new StandaloneConfiguration(launcher.getDataDirectory());
+  }
+
+  /**
+   * There are no players on the standalone proxy
+   */
+  @Override
+  public @Nullable Audience audience(final @Nullable UUID uniqueId) {
+    return null;
+  }
+
+  /**
+   * The console is the only command sender on the standalone proxy
+   */
+  @Override
+  @Deprecated
+  public @NotNull Audience sender(final @NotNull Object object) {
+    return StandaloneSonarCommand.CONSOLE;
+  }
+
+  /**
+   * There is no server logger we could use, so we use our own logger,
+   * which writes to the console and to the log files in the data directory.
+   */
+  private final LoggerWrapper logger = new LoggerWrapper() {
+    private final Logger logger = createLogger(getPlugin().getDataDirectory());
+
+    @Override
+    public void info(final String message, final Object... args) {
+      logger.info(buildFullMessage(message, args));
+    }
+
+    @Override
+    public void warn(final String message, final Object... args) {
+      logger.warning(buildFullMessage(message, args));
+    }
+
+    @Override
+    public void error(final String message, final Object... args) {
+      logger.severe(buildFullMessage(message, args));
+    }
+  };
+
+  private static @NotNull Logger createLogger(final @NotNull File dataDirectory) {
+    // The library manager uses the same logger
+    final Logger logger = Logger.getLogger("Sonar");
+    logger.setUseParentHandlers(false);
+    final Formatter formatter = new Formatter() {
+      @Override
+      public String format(final @NotNull LogRecord record) {
+        final StringBuilder builder = new StringBuilder()
+          .append('[').append(TIME_FORMATTER.format(LocalTime.now())).append(' ')
+          .append(record.getLevel() == Level.SEVERE ? "ERROR" : record.getLevel() == Level.WARNING ? "WARN" : "INFO")
+          .append("]: ").append(formatMessage(record)).append(System.lineSeparator());
+        if (record.getThrown() != null) {
+          final StringWriter stackTrace = new StringWriter();
+          record.getThrown().printStackTrace(new PrintWriter(stackTrace));
+          builder.append(stackTrace);
+        }
+        return builder.toString();
+      }
+    };
+
+    final Handler console = new StreamHandler(System.out, formatter) {
+      @Override
+      public synchronized void publish(final LogRecord record) {
+        super.publish(record);
+        // Messages should show up in the console immediately
+        flush();
+      }
+    };
+    logger.addHandler(console);
+
+    final File logsDirectory = new File(dataDirectory, "logs");
+    try {
+      if (logsDirectory.isDirectory() || logsDirectory.mkdirs()) {
+        final FileHandler file = new FileHandler(new File(logsDirectory, "sonar-%g.log").getPath(),
+          LOG_FILE_LIMIT, LOG_FILE_COUNT, true);
+        file.setFormatter(formatter);
+        logger.addHandler(file);
+      }
+    } catch (IOException exception) {
+      logger.warning("Could not open the log file: " + exception);
+    }
+    return logger;
+  }
+
+  @Override
+  public void enable() {
+    // Load the settings of the standalone proxy; changes require a restart
+    standaloneConfig.load();
+
+    // Listen for Sonar commands in the console
+    StandaloneSonarCommand.listen();
+
+    // Start accepting connections
+    server = new FallbackStandaloneServer(standaloneConfig);
+    server.start();
+  }
+
+  @Override
+  public void disable() {
+    if (server != null) {
+      server.stop();
+    }
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.standalone;
+
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+
+@Getter
+public final class SonarStandaloneLauncher {
+  private final File dataDirectory;
+  private SonarStandalone bootstrap;
+
+  private SonarStandaloneLauncher(final @NotNull File dataDirectory) {
+    this.dataDirectory = dataDirectory;
+  }
+
+  public static void main(final String @NotNull [] args) {
+    // The data directory can be passed as the first argument
+    final File dataDirectory = new File(args.length > 0 ? args[0] : "sonar");
+    final SonarStandaloneLauncher launcher = new SonarStandaloneLauncher(dataDirectory);
+    launcher.start();
+  }
+
+  private void start() {
+    bootstrap = new SonarStandalone(this);
+    // Make sure to shut down properly when the process is stopped
+    Runtime.getRuntime().addShutdownHook(new Thread(bootstrap::shutdown, "sonar-shutdown"));
+    bootstrap.initialize();
+    // Don't keep the process alive if we couldn't start listening for connections
+    if (bootstrap.getServer() == null || !bootstrap.getServer().isRunning()) {
+      System.exit(1);
+    }
+  }
+}
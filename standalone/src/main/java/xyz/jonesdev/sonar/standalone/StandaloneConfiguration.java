@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.standalone;
+
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+import xyz.jonesdev.sonar.api.Sonar;
+import xyz.jonesdev.sonar.api.config.SimpleYamlConfig;
+
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.net.URL;
+
+@Getter
+public final class StandaloneConfiguration {
+  private final SimpleYamlConfig yamlConfig;
+
+  private InetSocketAddress bindAddress;
+  private InetSocketAddress backendAddress;
+  private boolean proxyProtocol;
+  private int connectTimeout;
+
+  public StandaloneConfiguration(final @NotNull File dataDirectory) {
+    this.yamlConfig = new SimpleYamlConfig(new File(dataDirectory, "standalone.yml"));
+  }
+
+  public void load() {
+    final URL defaultData = StandaloneConfiguration.class.getResource("/standalone.yml");
+    if (defaultData == null) {
+      throw new IllegalStateException("Could not find the default standalone.yml");
+    }
+    try {
+      yamlConfig.load(defaultData);
+    } catch (Exception exception) {
+      throw new IllegalStateException("Error loading configuration", exception);
+    }
+
+    bindAddress = new InetSocketAddress(yamlConfig.getString("bind.address"),
+      clamp(yamlConfig.getInt("bind.port"), 1, 65535));
+    // Don't resolve the backend address yet, since its IP address might change
+    backendAddress = InetSocketAddress.createUnresolved(yamlConfig.getString("backend.address"),
+      clamp(yamlConfig.getInt("backend.port"), 1, 65535));
+    proxyProtocol = yamlConfig.getBoolean("backend.proxy-protocol");
+    connectTimeout = clamp(yamlConfig.getInt("backend.connect-timeout"), 100, 60000);
+  }
+
+  private static int clamp(final int v, final int min, final int max) {
+    final int output = Math.max(Math.min(v, max), min);
+    if (output != v) {
+      Sonar.get0().getLogger().warn("Clamped configuration value {} to {}", v, output);
+    }
+    return output;
+  }
+}
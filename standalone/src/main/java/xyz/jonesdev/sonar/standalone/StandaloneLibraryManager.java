@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.standalone;
+
+import com.alessiodp.libby.Library;
+import com.alessiodp.libby.LibraryManager;
+import com.alessiodp.libby.logging.adapters.JDKLogAdapter;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Path;
+import java.util.logging.Logger;
+
+/**
+ * The standalone jar already contains every library Sonar needs
+ * (including the database drivers), so there is nothing left to download.
+ */
+final class StandaloneLibraryManager extends LibraryManager {
+  StandaloneLibraryManager(final @NotNull Path dataDirectory) {
+    super(new JDKLogAdapter(Logger.getLogger("Sonar")), dataDirectory, "libraries");
+  }
+
+  @Override
+  public void loadLibrary(final @NotNull Library library) {
+    // Everything has already been bundled and relocated by the shadow plugin
+  }
+
+  @Override
+  protected void addToClasspath(final @NotNull Path file) {
+    // Nothing is ever downloaded, so there is nothing to add either
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.standalone.command;
+
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.flattener.ComponentFlattener;
+import org.jetbrains.annotations.NotNull;
+import xyz.jonesdev.sonar.api.Sonar;
+import xyz.jonesdev.sonar.api.command.InvocationSource;
+import xyz.jonesdev.sonar.api.command.SonarCommand;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public final class StandaloneSonarCommand implements SonarCommand {
+  // The console can't display any colors or formatting, so we only print the plain text
+  public static final Audience CONSOLE = new Audience() {
+    @Override
+    public void sendMessage(final @NotNull Component message) {
+      final StringBuilder builder = new StringBuilder();
+      ComponentFlattener.basic().flatten(message, builder::append);
+      Sonar.get0().getLogger().info(builder.toString());
+    }
+  };
+
+  private final InvocationSource invocationSource = new InvocationSource(null, CONSOLE, permission -> true);
+
+  /**
+   * Reads commands from the console on a separate thread
+   */
+  public static void listen() {
+    final Thread thread = new Thread(new StandaloneSonarCommand()::read, "sonar-console");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private void read() {
+    try (final BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        final String[] args = line.trim().split("\\s+");
+        if (args[0].isEmpty()) {
+          continue;
+        }
+        // Stopping the process runs the shutdown hook
+        if (args[0].equalsIgnoreCase("stop") || args[0].equalsIgnoreCase("end")) {
+          System.exit(0);
+          return;
+        }
+        // Allow both "sonar <subcommand>" and "<subcommand>"
+        handle(invocationSource, args[0].equalsIgnoreCase("sonar") ? Arrays.copyOfRange(args, 1, args.length) : args);
+      }
+    } catch (IOException exception) {
+      Sonar.get0().getLogger().error("Could not read from the console: {}", exception);
+    }
+  }
+}
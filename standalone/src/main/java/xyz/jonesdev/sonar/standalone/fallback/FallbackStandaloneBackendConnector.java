@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.standalone.fallback;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.*;
+import io.netty.util.ReferenceCountUtil;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+import xyz.jonesdev.sonar.api.Sonar;
+import xyz.jonesdev.sonar.common.fallback.FallbackInboundHandler;
+import xyz.jonesdev.sonar.common.util.ProtocolUtil;
+import xyz.jonesdev.sonar.standalone.StandaloneConfiguration;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static xyz.jonesdev.sonar.api.fallback.FallbackPipelines.FALLBACK_STATUS_CAPTURE;
+import static xyz.jonesdev.sonar.standalone.fallback.FallbackStandaloneChannelInitializer.FRAME_DECODER;
+
+/**
+ * Connects the player to the backend server and replays the packets we've already read.
+ * Once the connection has been established, every other handler is removed from the pipeline,
+ * so the bytes are forwarded between the player and the backend without being decoded.
+ */
+@RequiredArgsConstructor
+final class FallbackStandaloneBackendConnector extends ChannelInboundHandlerAdapter {
+  private static final String BACKEND_CONNECTOR = "standalone-backend-connector";
+  private static final String RELAY = "standalone-relay";
+  // https://www.haproxy.org/download/2.9/doc/proxy-protocol.txt
+  private static final byte[] PROXY_V2_SIGNATURE = {
+    0x0D, 0x0A, 0x0D, 0x0A, 0x00, 0x0D, 0x0A, 0x51, 0x55, 0x49, 0x54, 0x0A
+  };
+
+  private final @NotNull StandaloneConfiguration config;
+  private final byte[] @NotNull [] frames;
+  private final List<Object> pending = new ArrayList<>(1);
+
+  static void connect(final @NotNull Channel channel,
+                      final @NotNull StandaloneConfiguration config,
+                      final byte[] @NotNull ... frames) {
+    // Don't read anything else from the player until we're connected to the backend
+    channel.config().setAutoRead(false);
+    channel.pipeline().addLast(BACKEND_CONNECTOR, new FallbackStandaloneBackendConnector(config, frames));
+    // The frame decoder passes on all bytes it hasn't decoded yet when it is removed,
+    // so everything the player sends from now on ends up in this handler
+    if (channel.pipeline().context(FRAME_DECODER) != null) {
+      channel.pipeline().remove(FRAME_DECODER);
+    }
+  }
+
+  @Override
+  public void handlerAdded(final @NotNull ChannelHandlerContext ctx) throws Exception {
+    final Channel channel = ctx.channel();
+    new Bootstrap()
+      .group(channel.eventLoop())
+      // Use the same transport as the channel of the player
+      .channel(channel.getClass())
+      .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, config.getConnectTimeout())
+      .option(ChannelOption.TCP_NODELAY, true)
+      .option(ChannelOption.AUTO_READ, false)
+      .handler(new FallbackStandaloneRelayHandler(channel))
+      .connect(config.getBackendAddress())
+      .addListener((ChannelFutureListener) future -> {
+        if (!future.isSuccess()) {
+          Sonar.get0().getLogger().warn("Could not connect {} to the backend: {}",
+            channel.remoteAddress(), future.cause());
+          channel.close();
+          return;
+        }
+        onConnected(ctx, future.channel());
+      });
+  }
+
+  @Override
+  public void channelRead(final @NotNull ChannelHandlerContext ctx, final @NotNull Object msg) throws Exception {
+    pending.add(msg);
+  }
+
+  @Override
+  public void handlerRemoved(final @NotNull ChannelHandlerContext ctx) throws Exception {
+    for (final Object msg : pending) {
+      ReferenceCountUtil.release(msg);
+    }
+    pending.clear();
+  }
+
+  @Override
+  public void exceptionCaught(final @NotNull ChannelHandlerContext ctx, final Throwable cause) throws Exception {
+    ctx.close();
+  }
+
+  private void onConnected(final @NotNull ChannelHandlerContext ctx, final @NotNull Channel backend) {
+    final Channel channel = ctx.channel();
+    // The player might have disconnected while we were connecting to the backend
+    if (!channel.isActive()) {
+      backend.close();
+      return;
+    }
+
+    if (config.isProxyProtocol()) {
+      backend.write(encodeProxyHeader(backend,
+        (InetSocketAddress) channel.remoteAddress(), (InetSocketAddress) channel.localAddress()));
+    }
+    final ByteBuf replay = backend.alloc().buffer();
+    for (final byte[] frame : frames) {
+      ProtocolUtil.writeVarInt(replay, frame.length);
+      replay.writeBytes(frame);
+    }
+    backend.write(replay);
+    for (final Object msg : pending) {
+      backend.write(msg);
+    }
+    pending.clear();
+    backend.flush();
+
+    // Take over the entire pipeline of the player
+    final ChannelPipeline pipeline = channel.pipeline();
+    pipeline.addLast(RELAY, new FallbackStandaloneRelayHandler(backend));
+    // We still need to know when the player disconnects
+    final FallbackInboundHandler inboundHandler = pipeline.get(FallbackInboundHandler.class);
+    if (inboundHandler != null) {
+      FallbackInboundHandler.strip(channel, inboundHandler);
+    }
+    for (final Map.Entry<String, ChannelHandler> entry : pipeline) {
+      // The status capture handler still has to see the status response of the backend
+      if (!entry.getKey().equals(RELAY) && !entry.getKey().equals(FALLBACK_STATUS_CAPTURE)) {
+        pipeline.remove(entry.getValue());
+      }
+    }
+
+    channel.config().setAutoRead(true);
+    backend.config().setAutoRead(true);
+  }
+
+  private static @NotNull ByteBuf encodeProxyHeader(final @NotNull Channel backend,
+                                                    final @NotNull InetSocketAddress source,
+                                                    final @NotNull InetSocketAddress destination) {
+    byte[] sourceAddress = source.getAddress().getAddress();
+    byte[] destinationAddress = destination.getAddress().getAddress();
+    // Both addresses have to be of the same family
+    if (sourceAddress.length != destinationAddress.length) {
+      sourceAddress = toIPv6(sourceAddress);
+      destinationAddress = toIPv6(destinationAddress);
+    }
+    final boolean ipv4 = sourceAddress.length == 4;
+
+    final ByteBuf byteBuf = backend.alloc().buffer(16 + (ipv4 ? 12 : 36));
+    byteBuf.writeBytes(PROXY_V2_SIGNATURE);
+    // Version 2, PROXY command
+    byteBuf.writeByte(0x21);
+    // TCP over IPv4 or IPv6
+    byteBuf.writeByte(ipv4 ? 0x11 : 0x21);
+    byteBuf.writeShort(ipv4 ? 12 : 36);
+    byteBuf.writeBytes(sourceAddress);
+    byteBuf.writeBytes(destinationAddress);
+    byteBuf.writeShort(source.getPort());
+    byteBuf.writeShort(destination.getPort());
+    return byteBuf;
+  }
+
+  private static byte @NotNull [] toIPv6(final byte @NotNull [] address) {
+    if (address.length == 16) {
+      return address;
+    }
+    // IPv4-mapped IPv6 address (::ffff:a.b.c.d)
+    final byte[] mapped = new byte[16];
+    mapped[10] = (byte) 0xFF;
+    mapped[11] = (byte) 0xFF;
+    System.arraycopy(address, 0, mapped, 12, 4);
+    return mapped;
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.standalone.fallback;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import org.jetbrains.annotations.NotNull;
+import xyz.jonesdev.sonar.api.Sonar;
+import xyz.jonesdev.sonar.common.fallback.netty.FallbackTimeoutHandler;
+import xyz.jonesdev.sonar.common.fallback.netty.FallbackVarInt21FrameDecoder;
+import xyz.jonesdev.sonar.common.fallback.netty.FallbackVarIntLengthEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the minimal pipeline the standalone proxy needs to read the handshake and login packets.
+ * These handlers play the role of the server's handlers on the other platforms,
+ * so they are removed as soon as Sonar takes over the connection.
+ */
+final class FallbackStandaloneChannelInitializer extends ChannelInitializer<Channel> {
+  static final String TIMEOUT = "timeout";
+  static final String FRAME_DECODER = "frame-decoder";
+  static final String FRAME_ENCODER = "frame-encoder";
+  // Name of the encoder that Sonar replaces when disconnecting players during the login
+  static final String PACKET_ENCODER = "packet-encoder";
+
+  @Override
+  protected void initChannel(final @NotNull Channel channel) throws Exception {
+    channel.pipeline().addLast(TIMEOUT, new FallbackTimeoutHandler(
+      Sonar.get0().getConfig().getVerification().getReadTimeout(),
+      Sonar.get0().getConfig().getVerification().getWriteTimeout(),
+      TimeUnit.MILLISECONDS));
+    channel.pipeline().addLast(FRAME_DECODER, new FallbackVarInt21FrameDecoder());
+    channel.pipeline().addLast(FRAME_ENCODER, FallbackVarIntLengthEncoder.INSTANCE);
+    channel.pipeline().addLast(PACKET_ENCODER, PacketEncoderPlaceholder.INSTANCE);
+  }
+
+  /**
+   * We never send any packets ourselves before Sonar takes over the connection
+   */
+  @ChannelHandler.Sharable
+  private static final class PacketEncoderPlaceholder extends ChannelOutboundHandlerAdapter {
+    private static final PacketEncoderPlaceholder INSTANCE = new PacketEncoderPlaceholder();
+  }
+}
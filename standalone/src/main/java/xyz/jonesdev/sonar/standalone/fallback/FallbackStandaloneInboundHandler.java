@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.standalone.fallback;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandlerContext;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+import xyz.jonesdev.sonar.common.fallback.FallbackInboundHandlerAdapter;
+import xyz.jonesdev.sonar.common.fallback.protocol.packets.handshake.HandshakePacket;
+import xyz.jonesdev.sonar.common.fallback.protocol.packets.login.LoginStartPacket;
+import xyz.jonesdev.sonar.common.util.ProtocolUtil;
+import xyz.jonesdev.sonar.common.util.exception.QuietDecoderException;
+import xyz.jonesdev.sonar.standalone.StandaloneConfiguration;
+
+import java.net.InetSocketAddress;
+
+@RequiredArgsConstructor
+final class FallbackStandaloneInboundHandler extends FallbackInboundHandlerAdapter {
+  private final @NotNull StandaloneConfiguration config;
+  // We have to send the original packets to the backend once the player is allowed to join
+  private byte[] handshakeFrame;
+
+  @Override
+  public void channelRead(final @NotNull ChannelHandlerContext ctx, final Object msg) throws Exception {
+    if (!(msg instanceof ByteBuf)) {
+      ctx.fireChannelRead(msg);
+      return;
+    }
+    final ByteBuf byteBuf = (ByteBuf) msg;
+    try {
+      if (handshakeFrame == null) {
+        readHandshake(ctx, byteBuf);
+      } else {
+        readLoginStart(ctx, byteBuf);
+      }
+    } finally {
+      byteBuf.release();
+    }
+  }
+
+  private void readHandshake(final @NotNull ChannelHandlerContext ctx, final @NotNull ByteBuf byteBuf) throws Exception {
+    final byte[] frame = ByteBufUtil.getBytes(byteBuf);
+    // The first packet always has to be a handshake packet
+    if (ProtocolUtil.readVarInt(byteBuf) != 0x00) {
+      throw QuietDecoderException.INSTANCE;
+    }
+    final HandshakePacket handshake = new HandshakePacket();
+    handshake.decode(byteBuf, null);
+    handshakeFrame = frame;
+
+    switch (handshake.getIntent()) {
+      case HandshakePacket.STATUS: {
+        // The handshake sniffer has already applied the ping limit and answered the ping
+        // from the status cache if possible, so the backend only has to answer the rest
+        ctx.pipeline().remove(this);
+        FallbackStandaloneBackendConnector.connect(ctx.channel(), config, frame);
+        break;
+      }
+      case HandshakePacket.LOGIN:
+      case HandshakePacket.TRANSFER: {
+        if (!handleHandshake(ctx, handshake.getHostname(), handshake.getProtocolVersionId())) {
+          // The player is being disconnected; don't let the login start packet through to handleLogin
+          ctx.pipeline().remove(this);
+          return;
+        }
+        break;
+      }
+      default: {
+        throw QuietDecoderException.INSTANCE;
+      }
+    }
+  }
+
+  private void readLoginStart(final @NotNull ChannelHandlerContext ctx, final @NotNull ByteBuf byteBuf) throws Exception {
+    final byte[] frame = ByteBufUtil.getBytes(byteBuf);
+    if (ProtocolUtil.readVarInt(byteBuf) != 0x00) {
+      throw QuietDecoderException.INSTANCE;
+    }
+    // Players with unknown protocol versions are disconnected while handling the login anyway
+    final LoginStartPacket loginStart = new LoginStartPacket();
+    if (!protocolVersion.isUnknown()) {
+      loginStart.decode(byteBuf, protocolVersion);
+    }
+    final String username = loginStart.getUsername() == null ? "" : loginStart.getUsername();
+
+    // Deject this pipeline and let Sonar process the login packet
+    ctx.pipeline().remove(this);
+    final byte[] handshake = handshakeFrame;
+    handleLogin(ctx, () -> FallbackStandaloneBackendConnector.connect(ctx.channel(), config, handshake, frame),
+      username, (InetSocketAddress) ctx.channel().remoteAddress());
+  }
+
+  @Override
+  public void exceptionCaught(final @NotNull ChannelHandlerContext ctx, final Throwable cause) throws Exception {
+    // There is no server behind us that could handle this
+    ctx.close();
+  }
+}
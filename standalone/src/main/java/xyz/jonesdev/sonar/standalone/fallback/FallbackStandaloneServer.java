@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.standalone.fallback;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+import xyz.jonesdev.sonar.api.Sonar;
+import xyz.jonesdev.sonar.common.fallback.netty.FallbackInjectedChannelInitializer;
+import xyz.jonesdev.sonar.standalone.StandaloneConfiguration;
+
+import static xyz.jonesdev.sonar.api.fallback.FallbackPipelines.FALLBACK_PACKET_HANDLER;
+import static xyz.jonesdev.sonar.standalone.fallback.FallbackStandaloneChannelInitializer.FRAME_DECODER;
+
+@RequiredArgsConstructor
+public final class FallbackStandaloneServer {
+  private final @NotNull StandaloneConfiguration config;
+  private EventLoopGroup bossGroup, workerGroup;
+  private Channel channel;
+
+  public void start() {
+    final boolean epoll = Epoll.isAvailable();
+    final Class<? extends ServerChannel> channelClass;
+    if (epoll) {
+      bossGroup = new EpollEventLoopGroup(1, new DefaultThreadFactory("sonar-boss", true));
+      workerGroup = new EpollEventLoopGroup(0, new DefaultThreadFactory("sonar-worker"));
+      channelClass = EpollServerSocketChannel.class;
+    } else {
+      bossGroup = new NioEventLoopGroup(1, new DefaultThreadFactory("sonar-boss", true));
+      workerGroup = new NioEventLoopGroup(0, new DefaultThreadFactory("sonar-worker"));
+      channelClass = NioServerSocketChannel.class;
+    }
+
+    // Sonar's own handlers are injected exactly like on every other platform
+    final FallbackInjectedChannelInitializer initializer = new FallbackInjectedChannelInitializer(
+      new FallbackStandaloneChannelInitializer(), pipeline -> pipeline.addAfter(FRAME_DECODER,
+      FALLBACK_PACKET_HANDLER, new FallbackStandaloneInboundHandler(config)));
+
+    try {
+      channel = new ServerBootstrap()
+        .group(bossGroup, workerGroup)
+        .channel(channelClass)
+        .childOption(ChannelOption.TCP_NODELAY, true)
+        .childHandler(initializer)
+        .bind(config.getBindAddress())
+        .syncUninterruptibly()
+        .channel();
+    } catch (Throwable throwable) {
+      stop();
+      throw new IllegalStateException("Could not bind to " + config.getBindAddress(), throwable);
+    }
+
+    Sonar.get0().getLogger().info("Listening on {} using {}; sending verified players to {}",
+      config.getBindAddress(), epoll ? "epoll" : "nio", config.getBackendAddress());
+  }
+
+  public boolean isRunning() {
+    return channel != null && channel.isOpen();
+  }
+
+  public void stop() {
+    if (channel != null) {
+      channel.close().syncUninterruptibly();
+    }
+    if (bossGroup != null) {
+      bossGroup.shutdownGracefully();
+    }
+    if (workerGroup != null) {
+      workerGroup.shutdownGracefully();
+    }
+  }
+}
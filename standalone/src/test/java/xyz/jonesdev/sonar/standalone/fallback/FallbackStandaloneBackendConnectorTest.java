@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2025 Sonar Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package xyz.jonesdev.sonar.standalone.fallback;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import xyz.jonesdev.sonar.standalone.StandaloneConfiguration;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Sends a player through the standalone proxy to a dummy backend,
+ * which answers as soon as it has received the replayed packets and the rest of the data.
+ */
+class FallbackStandaloneBackendConnectorTest {
+  private static final byte[] HANDSHAKE = {0x00, 0x01, 0x02};
+  private static final byte[] LOGIN_START = {0x00, 0x03};
+  private static final byte[] PLAYER_DATA = "hello".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] BACKEND_DATA = "welcome".getBytes(StandardCharsets.UTF_8);
+
+  private EventLoopGroup group;
+
+  @BeforeEach
+  void start() {
+    group = new NioEventLoopGroup(2);
+  }
+
+  @AfterEach
+  void stop() {
+    group.shutdownGracefully(0L, 1L, TimeUnit.SECONDS).syncUninterruptibly();
+  }
+
+  @Test
+  void relaysPlayerToBackend(final @TempDir Path dataDirectory) throws Exception {
+    // Everything the backend should receive: the replayed frames followed by the data of the player
+    final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    expected.write(HANDSHAKE.length);
+    expected.write(HANDSHAKE);
+    expected.write(LOGIN_START.length);
+    expected.write(LOGIN_START);
+    expected.write(PLAYER_DATA);
+
+    final CompletableFuture<byte[]> received = new CompletableFuture<>();
+    final Channel backend = listen(new ChannelInboundHandlerAdapter() {
+      private final ByteBuf buffer = Unpooled.buffer();
+
+      @Override
+      public void channelRead(final @NotNull ChannelHandlerContext ctx, final @NotNull Object msg) {
+        final ByteBuf byteBuf = (ByteBuf) msg;
+        buffer.writeBytes(byteBuf);
+        byteBuf.release();
+        if (buffer.readableBytes() >= expected.size()) {
+          received.complete(ByteBufUtil.getBytes(buffer));
+          ctx.writeAndFlush(Unpooled.wrappedBuffer(BACKEND_DATA));
+        }
+      }
+    });
+
+    final File configFile = dataDirectory.resolve("standalone.yml").toFile();
+    Files.write(configFile.toPath(), ("backend:\n  address: 127.0.0.1\n  port: "
+      + ((InetSocketAddress) backend.localAddress()).getPort() + "\n").getBytes(StandardCharsets.UTF_8));
+    final StandaloneConfiguration config = new StandaloneConfiguration(dataDirectory.toFile());
+    config.load();
+
+    final Channel proxy = listen(new ChannelInboundHandlerAdapter() {
+      @Override
+      public void channelActive(final @NotNull ChannelHandlerContext ctx) {
+        FallbackStandaloneBackendConnector.connect(ctx.channel(), config, HANDSHAKE, LOGIN_START);
+        ctx.pipeline().remove(this);
+      }
+    });
+
+    try (final Socket socket = new Socket("127.0.0.1", ((InetSocketAddress) proxy.localAddress()).getPort())) {
+      socket.setSoTimeout(5000);
+      socket.getOutputStream().write(PLAYER_DATA);
+      socket.getOutputStream().flush();
+
+      assertArrayEquals(expected.toByteArray(), received.get(5L, TimeUnit.SECONDS));
+      final byte[] response = new byte[BACKEND_DATA.length];
+      new DataInputStream(socket.getInputStream()).readFully(response);
+      assertArrayEquals(BACKEND_DATA, response);
+    } finally {
+      proxy.close().syncUninterruptibly();
+      backend.close().syncUninterruptibly();
+    }
+  }
+
+  private @NotNull Channel listen(final @NotNull ChannelInboundHandlerAdapter handler) throws IOException {
+    return new ServerBootstrap()
+      .group(group)
+      .channel(NioServerSocketChannel.class)
+      .childHandler(new ChannelInitializer<Channel>() {
+        @Override
+        protected void initChannel(final @NotNull Channel channel) {
+          channel.pipeline().addLast(handler);
+        }
+      })
+      .bind("127.0.0.1", 0)
+      .syncUninterruptibly()
+      .channel();
+  }
+}
@@ -36,8 +36,8 @@ public void channelRead(final @NotNull ChannelHandlerContext ctx, final Object m
       // We don't care about server pings; remove the handler
       if (handshake.getNextStatus() == STATUS) {
         ctx.pipeline().remove(this);
-      } else {
-        handleHandshake(ctx, handshake.getServerAddress(), handshake.getProtocolVersion().getProtocol());
+      } else if (!handleHandshake(ctx, handshake.getServerAddress(), handshake.getProtocolVersion().getProtocol())) {
+        return;
       }
     } else if (msg instanceof ServerLoginPacket serverLogin) {
       // Deject this pipeline and let Sonar process the login packet